@@ -0,0 +1,185 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.ElapsedTime;
+
+/**
+ * This is NOT an opmode.
+ *
+ * A step of an autonomous routine that runs cooperatively from one loop, see {@link BT_Scheduler}.
+ * {@link #start()} is called on the first update, {@link #update()} is called every loop until it
+ * returns true, and {@link #end(boolean)} is called once when it is done or interrupted.
+ * An action that only overrides start() is an instant action.
+ *
+ * Actions keep their state, so each one runs only once. Build the routine again to rerun it.
+ */
+public abstract class BT_Action {
+    private boolean started = false;
+    private boolean finished = false;
+
+    /**
+     * Called once before the first update.
+     */
+    public void start() {
+    }
+
+    /**
+     * Called every loop while running.
+     * @return true when the action is done.
+     */
+    public boolean update() {
+        return true;
+    }
+
+    /**
+     * Called once when the action is done, or when it is interrupted by its parent.
+     * @param interrupted true if the action was stopped before it was done.
+     */
+    public void end(boolean interrupted) {
+    }
+
+    /**
+     * Runs one loop of the action.
+     * @return true when the action is done.
+     */
+    public final boolean step() {
+        if (finished) {
+            return true;
+        }
+        if (!started) {
+            started = true;
+            start();
+        }
+        if (update()) {
+            finished = true;
+            end(false);
+        }
+        return finished;
+    }
+
+    /**
+     * Interrupts the action if it is running.
+     */
+    public final void cancel() {
+        if (started && !finished) {
+            finished = true;
+            end(true);
+        }
+    }
+
+    public final boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Runs the actions one after the other.
+     */
+    public static BT_Action sequence(final BT_Action... actions) {
+        return new BT_Action() {
+            private int current = 0;
+
+            @Override
+            public boolean update() {
+                // Move on in the same loop when an action is done, so instant actions cost nothing.
+                while (current < actions.length && actions[current].step()) {
+                    current++;
+                }
+                return current == actions.length;
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                if (interrupted && current < actions.length) {
+                    actions[current].cancel();
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs the actions together until all of them are done.
+     */
+    public static BT_Action parallel(final BT_Action... actions) {
+        return new BT_Action() {
+            @Override
+            public boolean update() {
+                boolean done = true;
+                for (BT_Action action : actions) {
+                    done &= action.step();
+                }
+                return done;
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                cancelAll(actions);
+            }
+        };
+    }
+
+    /**
+     * Runs the actions together until one of them is done, then interrupts the others.
+     */
+    public static BT_Action race(final BT_Action... actions) {
+        return new BT_Action() {
+            @Override
+            public boolean update() {
+                boolean done = false;
+                for (BT_Action action : actions) {
+                    done |= action.step();
+                }
+                return done;
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                cancelAll(actions);
+            }
+        };
+    }
+
+    /**
+     * Runs the actions together until the deadline action is done, then interrupts the others.
+     */
+    public static BT_Action deadline(final BT_Action deadline, final BT_Action... others) {
+        return new BT_Action() {
+            @Override
+            public boolean update() {
+                for (BT_Action action : others) {
+                    action.step();
+                }
+                return deadline.step();
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                deadline.cancel();
+                cancelAll(others);
+            }
+        };
+    }
+
+    /**
+     * Waits for the given time without blocking the loop.
+     */
+    public static BT_Action waitMs(final double ms) {
+        return new BT_Action() {
+            private final ElapsedTime timer = new BT_Timer();
+
+            @Override
+            public void start() {
+                timer.reset();
+            }
+
+            @Override
+            public boolean update() {
+                return timer.milliseconds() >= ms;
+            }
+        };
+    }
+
+    private static void cancelAll(BT_Action[] actions) {
+        for (BT_Action action : actions) {
+            action.cancel();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.util.Range;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Position controller of the glyph arm, in place of RUN_TO_POSITION at a fixed power. A move
+ * follows a trapezoid {@link BT_MotionProfile} in degrees, and the power is
+ *
+ *   KG * cos(angle) + KV * velocity + KA * acceleration + PID on the profile position,
+ *
+ * so the gravity feedforward holds the arm at any angle, the profile feedforward moves it, and
+ * the PID only corrects what is left. The motor runs without its encoder PID for that.
+ *
+ * update runs every UPDATE_INTERVAL_MS on a background thread after start(), so the arm holds
+ * while the opmode thread sleeps or drives. isDone tells when a move is over, it never blocks.
+ * Until start() the motor holds the target with RUN_TO_POSITION at HOLD_POWER, so the arm is
+ * held during INIT and in opmodes that never start the controller.
+ */
+public class BT_ArmController {
+    static final long UPDATE_INTERVAL_MS = 20;
+    // Arm angle from horizontal at encoder 0, where it rests down.
+    static final double ZERO_ANGLE_DEG = 0;
+    static final double MAX_DEG_PER_S = 240;
+    static final double MAX_DEG_PER_S2 = 720;
+    // Power that holds the arm horizontal.
+    static final double KG = 0.08;
+    // Power per degree per second and per degree per second squared.
+    static final double KV = 1.0 / 600;
+    static final double KA = 0.0002;
+    static final double TOLERANCE_DEG = 2;
+    // Power of the RUN_TO_POSITION hold until start().
+    static final double HOLD_POWER = 0.2;
+
+    private final double countsPerDeg;
+    private volatile DcMotor motor = null;
+    // Corrects the error from the profile position, in degrees.
+    public final BT_PIDF positionController = new BT_PIDF(0.02, 0, 0.001, 0);
+
+    private BT_MotionProfile profile = null;
+    private double startDeg = 0;
+    private long profileStartNs = 0;
+    private int target = 0;
+    private boolean manual = false;
+    private double manualPower = 0;
+    private double lastPower = 0;
+    // Counts resetEncoder, so an update does not publish a read from before a reset.
+    private volatile int encoderResets = 0;
+
+    // Latest encoder position and state for other threads.
+    private volatile int position = 0;
+    private volatile boolean done = true;
+
+    private final BT_PeriodicWorker updater = new BT_PeriodicWorker(
+            "BT_ArmController updater", UPDATE_INTERVAL_MS, new Runnable() {
+                @Override
+                public void run() {
+                    update();
+                }
+            });
+
+    /* Constructor */
+    public BT_ArmController(double countsPerDeg) {
+        this.countsPerDeg = countsPerDeg;
+    }
+
+    public synchronized void init(DcMotor motor) {
+        this.motor = motor;
+        position = motor.getCurrentPosition();
+        target = position;
+        if (updater.isRunning()) {
+            motor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        }
+        else {
+            holdTarget();
+        }
+    }
+
+    /**
+     * Starts moving the arm to the encoder position, it does not wait for it.
+     * Moving to the current target again does nothing.
+     */
+    public synchronized void moveTo(int ticks) {
+        if (!manual && ticks == target) {
+            return;
+        }
+        long now = BT_Clock.nanoTime();
+        // From where the arm is sent now, or where it is after manual control.
+        startDeg = profile != null && !manual ? setpointDeg(now) : position / countsPerDeg;
+        manual = false;
+        target = ticks;
+        profile = new BT_MotionProfile(ticks / countsPerDeg - startDeg, MAX_DEG_PER_S, MAX_DEG_PER_S2,
+                BT_MotionProfile.Shape.TRAPEZOID, 0);
+        profileStartNs = now;
+        positionController.reset();
+        done = false;
+        if (!updater.isRunning()) {
+            holdTarget();
+        }
+    }
+
+    /**
+     * Drives the arm with the power on top of the gravity feedforward, until the next moveTo.
+     */
+    public synchronized void setManualPower(double power) {
+        manual = true;
+        manualPower = power;
+        done = true;
+    }
+
+    /**
+     * Zeroes the encoder where the arm is and holds it there.
+     */
+    public synchronized void resetEncoder() {
+        motor.setPower(0);
+        lastPower = 0;
+        motor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        encoderResets++;
+        position = 0;
+        target = 0;
+        profile = null;
+        manual = false;
+        done = true;
+        if (updater.isRunning()) {
+            motor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        }
+        else {
+            holdTarget();
+        }
+    }
+
+    /**
+     * @return True once the profile of the last move is over and the arm is within TOLERANCE_DEG.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    public synchronized int getTarget() {
+        return target;
+    }
+
+    /**
+     * @return The encoder position of the last update, it never blocks.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return An action that moves the arm to the encoder position and is done when it is there.
+     */
+    public BT_Action moveAction(final int ticks) {
+        return new BT_Action() {
+            @Override
+            public void start() {
+                moveTo(ticks);
+            }
+
+            @Override
+            public boolean update() {
+                return done;
+            }
+        };
+    }
+
+    /**
+     * Reads the encoder and sets the power for this moment of the move. The read and the write
+     * are made outside the lock, so moveTo and the others never wait for the hub.
+     */
+    public void update() {
+        int resets = encoderResets;
+        int ticks = motor.getCurrentPosition();
+        double power;
+        synchronized (this) {
+            if (resets != encoderResets) {
+                return;
+            }
+            position = ticks;
+            double measuredDeg = ticks / countsPerDeg;
+            power = KG * Math.cos(Math.toRadians(measuredDeg + ZERO_ANGLE_DEG));
+            if (manual) {
+                power += manualPower;
+            }
+            else {
+                long now = BT_Clock.nanoTime();
+                double t = (now - profileStartNs) / 1e9;
+                double setpoint = setpointDeg(now);
+                if (profile != null) {
+                    power += KV * profile.getVelocity(t) + KA * profile.getAcceleration(t);
+                }
+                power += positionController.update(setpoint - measuredDeg, measuredDeg);
+                if (!done && (profile == null || t >= profile.getDuration())
+                        && Math.abs(target / countsPerDeg - measuredDeg) <= TOLERANCE_DEG) {
+                    done = true;
+                }
+            }
+            power = Range.clip(power, -1, 1);
+            if (power == lastPower) {
+                return;
+            }
+            lastPower = power;
+        }
+        motor.setPower(power);
+    }
+
+    /**
+     * Starts updating every UPDATE_INTERVAL_MS on a background thread.
+     * Must be matched by stop() when the opmode ends, which also stops the arm.
+     */
+    public synchronized void start() {
+        if (updater.isRunning()) {
+            return;
+        }
+        // Takes the arm over from the RUN_TO_POSITION hold, the first update writes its power.
+        motor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        lastPower = Double.NaN;
+        updater.start();
+    }
+
+    public void stop() {
+        updater.stop();
+        synchronized (this) {
+            if (motor != null) {
+                motor.setPower(0);
+                lastPower = 0;
+            }
+        }
+    }
+
+    /**
+     * Holds the target with the motor's own RUN_TO_POSITION, while there is no updater.
+     */
+    private void holdTarget() {
+        motor.setTargetPosition(target);
+        motor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        motor.setPower(HOLD_POWER);
+        lastPower = HOLD_POWER;
+    }
+
+    private double setpointDeg(long now) {
+        if (profile == null) {
+            return target / countsPerDeg;
+        }
+        return startDeg + profile.getPosition((now - profileStartNs) / 1e9);
+    }
+}
@@ -71,28 +71,24 @@ public class BT_AutoBlueRight extends BT_AutoSuper {
 
     @Override
     public void driveToCrypto(double driveDist){
-        robot.drive.move(driveDist, BT_MecanumDrive.DriveDirection.BACKWARD, 2500 , telemetry );
+        robot.drive.driveTo(-driveDist, 0, 2500 , telemetry );
     }
 
     @Override
     public void put2Cubes() {
         robot.intake.glyphsIn();
-        robot.drive.move(68, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry, 0.5);
-        robot.drive.move(90, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry, 0.3);
-        robot.drive.turn(90, 2500, telemetry, true);
-        robot.drive.move(140, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry, 1);
+        robot.drive.followPath(5000, telemetry, cryptoPoint(68, 0, 90, 0.5), cryptoPoint(158, 0, 90, 0.3));
+        robot.drive.followPath(2500, telemetry, cryptoPoint(18, 0, 90, 1));
         robot.intake.stop();
         robot.glyphs.autoArmMid();
-        sleep(200);
-        robot.drive.turn(90, 2500, telemetry, true);
-        sleep(100);
-        robot.drive.move(CRYPTO_DIST+10, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry);
+        BT_Clock.sleep(200);
+        robot.drive.followPath(2500, telemetry, cryptoPoint(-CRYPTO_DIST + 8, 0, 90, BT_MecanumDrive.AUTO_DRIVE_SPEED));
         robot.glyphs.releaseGlyphs();
-        sleep(700);
-        robot.drive.move(5, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry, 0.1);
-        robot.drive.move(20, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry, 0.9);
+        BT_Clock.sleep(700);
+        robot.drive.followPath(5000, telemetry, cryptoPoint(-CRYPTO_DIST + 13, 0, 90, 0.1),
+                cryptoPoint(-CRYPTO_DIST + 33, 0, 90, 0.9));
         robot.glyphs.armDown(true);
-        robot.drive.move(20, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry);
+        robot.drive.followPath(2500, telemetry, cryptoPoint(-CRYPTO_DIST + 13, 0, 90, BT_MecanumDrive.AUTO_DRIVE_SPEED));
     }
 }
 
@@ -70,34 +70,61 @@ public class BT_AutoBlueRight2cudes extends BT_AutoSuper {
 
     @Override
     public void driveToCrypto(double driveDist) {
-        robot.drive.move(driveDist, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry);
+        robot.drive.driveTo(-driveDist, 0, 2500, telemetry);
 
 
     }
 
     @Override
-    public void put2Cubes() {
-        robot.drive.turn(90, 3000, telemetry, true);
-        robot.intake.glyphsIn();
-        robot.drive.move(55, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry);
-        robot.drive.move(25, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry, 0.3);
-        robot.drive.move(65, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry);
-        robot.intake.stop();
-        robot.glyphs.catchGlyphs();
-        sleep(250);
-        robot.glyphs.autoArmHigh();
-        sleep(250);
-        robot.glyphs.armLow();
-        robot.drive.turn(90, 2500, telemetry, true);
-        robot.drive.move(CRYPTO_DIST, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry);
-        robot.glyphs.releaseGlyphs();
-        sleep(500);
-        robot.drive.move(20, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry);
-        robot.glyphs.armDown(true);
-//        robot.drive.move(20, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry);
-//        robot.drive.move(10, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry);
-
-
+    public BT_Action put2CubesAction() {
+        return BT_Action.sequence(
+                new BT_Action() {
+                    @Override
+                    public void start() {
+                        robot.intake.glyphsIn();
+                    }
+                },
+                // Straightens up on the way to the glyphs.
+                robot.drive.followPathAction(5000, telemetry,
+                        cryptoPoint(55, 0, 90, BT_MecanumDrive.AUTO_DRIVE_SPEED), cryptoPoint(80, 0, 90, 0.3)),
+                robot.drive.followPathAction(2500, telemetry, cryptoPoint(15, 0, 90, BT_MecanumDrive.AUTO_DRIVE_SPEED)),
+                new BT_Action() {
+                    @Override
+                    public void start() {
+                        robot.intake.stop();
+                        robot.glyphs.catchGlyphs();
+                    }
+                },
+                // Lift the glyphs while straightening up.
+                together(
+                        BT_Action.sequence(
+                                BT_Action.waitMs(250),
+                                robot.glyphs.armHighAction(),
+                                BT_Action.waitMs(250),
+                                new BT_Action() {
+                                    @Override
+                                    public void start() {
+                                        robot.glyphs.armLow();
+                                    }
+                                }),
+                        robot.drive.turnAction(90, 2500, telemetry)),
+                robot.drive.followPathAction(2500, telemetry,
+                        cryptoPoint(15 - CRYPTO_DIST, 0, 90, BT_MecanumDrive.AUTO_DRIVE_SPEED)),
+                new BT_Action() {
+                    @Override
+                    public void start() {
+                        robot.glyphs.releaseGlyphs();
+                    }
+                },
+                BT_Action.waitMs(500),
+                robot.drive.followPathAction(2500, telemetry,
+                        cryptoPoint(35 - CRYPTO_DIST, 0, 90, BT_MecanumDrive.AUTO_DRIVE_SPEED)),
+                new BT_Action() {
+                    @Override
+                    public void start() {
+                        robot.glyphs.armDown(true);
+                    }
+                });
     }
 
 }
\ No newline at end of file
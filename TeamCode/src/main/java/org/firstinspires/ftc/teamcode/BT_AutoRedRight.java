@@ -71,9 +71,9 @@ public class BT_AutoRedRight extends BT_AutoSuper {
 
     @Override
     public void driveToCrypto(double driveDist) {
-        robot.drive.move(80, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry);
+        robot.drive.driveTo(80, 0, 2500, telemetry);
         robot.drive.turn(-90, 3000, telemetry,true); //turn right
-        robot.drive.move(driveDist, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry);
+        robot.drive.driveTo(80, driveDist, 2500, telemetry);
     }
 
     @Override
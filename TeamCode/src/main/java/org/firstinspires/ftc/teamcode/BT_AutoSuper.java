@@ -33,6 +33,10 @@ import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.util.ElapsedTime;
 
 import org.firstinspires.ftc.robotcore.external.navigation.RelicRecoveryVuMark;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.IOException;
 
 
 /**
@@ -53,7 +57,13 @@ public class BT_AutoSuper extends LinearOpMode {
     protected static String ALLIANCE_COLOR ;
     protected static boolean IS_2_CUBES;
 
+    // Longest wait for a sure column after the jewel.
     static final double WAIT_FOR_VUMARK = 1500;
+    // Part of the last second of VuMark reads that must agree before the column is taken.
+    static final double MIN_VUMARK_CONFIDENCE = 0.5;
+    // Run the arm, intake and drive actions of a routine at the same time.
+    // false runs them one after the other, to measure the time saved.
+    static final boolean OVERLAP_ACTIONS = true;
 
     protected static double LEFT_DRIVE_DIST;
     protected static double CENTER_DRIVE_DIST;
@@ -65,8 +75,13 @@ public class BT_AutoSuper extends LinearOpMode {
     protected static double FINAL_ROBOT_ANGLE;
     protected static BT_Jewels.JewelColor TARGET_JEWEL_COLOR;
 
-    protected ElapsedTime runtime = new ElapsedTime();
+    // Folder of the trajectory files, null for the robot data folder. Set by the simulation.
+    static File trajectoryDir = null;
+
+    protected ElapsedTime runtime = new BT_Timer();
     protected BT_Hardware robot = new BT_Hardware();
+    // Where putCube left the robot, the paths of put2Cubes start from there.
+    protected final BT_Odometry.Pose cryptoPose = new BT_Odometry.Pose();
 
     public void initAutoConstants(){
     }
@@ -74,35 +89,82 @@ public class BT_AutoSuper extends LinearOpMode {
     @Override
     public void runOpMode() {
         initAutoConstants();
+        telemetry = new BT_TelemetryPublisher(telemetry, BT_TelemetryPublisher.DRIVER_STATION_HZ);
         BT_FieldSetup.closeCryptobox = CLOSE_CRYPTO_ANGLE;
         BT_FieldSetup.sideCryptobox = SIDE_CRYPTO_ANGLE;
         BT_FieldSetup.allianceColor = ALLIANCE_COLOR;
 
-        double driveDist = 0 ;
         robot.init(hardwareMap, this);
         BT_Status.cleanStatus();
         BT_Status.addLine("Robot Initialized");
         telemetry.addData("Status", BT_Status.getStatusLine());
         telemetry.update();
 
-        BT_Vumark btVumark = new BT_Vumark(hardwareMap) ;
-        BT_Status.addLine("Vumark Initialized");
-        telemetry.addData("Status",BT_Status.getStatusLine());
+        loadTrajectories();
+        planRoutes();
+        saveTrajectories();
+        BT_Status.addLine("Trajectories planned: " + robot.drive.trajectories.size());
+        telemetry.addData("Status", BT_Status.getStatusLine());
         telemetry.update();
 
-        RelicRecoveryVuMark vuMark = btVumark.getVuMark();
-        // Wait for the game to start (driver presses PLAY)
-        BT_Status.addLine("Waiting for start...");
-        telemetry.addData("Status",BT_Status.getStatusLine());
-        telemetry.update();
-        waitForStart();
+        BT_Vumark btVumark = new BT_Vumark(hardwareMap) ;
+        // Identifies the column from now on, so it is known by PLAY.
+        btVumark.startTracking();
+        try {
+            BT_Status.addLine("Vumark Initialized");
+            telemetry.addData("Status",BT_Status.getStatusLine());
+            telemetry.update();
+
+            // Wait for the game to start (driver presses PLAY)
+            BT_Status.addLine("Waiting for start...");
+            BT_Vumark.Reading reading = new BT_Vumark.Reading();
+            while (!isStarted() && !isStopRequested()) {
+                // Shows what the camera sees, to line the robot up.
+                btVumark.getReading(reading);
+                telemetry.addData("Status",BT_Status.getStatusLine());
+                telemetry.addData("VuMark", "%s %.0f%%", reading.vuMark, reading.confidence * 100);
+                telemetry.update();
+                idle();
+            }
+            waitForStart();
+            robot.start();
+            // The field frame of driveTo is the start: x forward, y to the left.
+            robot.drive.odometry.setPose(0, 0, 0);
+            robot.drive.odometry.startTracking();
+            try {
+                runRoutine(btVumark);
+            }
+            finally {
+                robot.stop();
+                // Keeps the moves planned during the run for the next one.
+                saveTrajectories();
+            }
+        }
+        finally {
+            btVumark.stopTracking();
+        }
+    }
+
+    private void runRoutine(BT_Vumark btVumark) {
+        double driveDist = 0 ;
         BT_Status.addLine("Started...");
         telemetry.addData("Status",BT_Status.getStatusLine());
         telemetry.update();
+
+        // The jewel does not need the column, it starts at once while the tracker keeps reading.
+        robot.jewels.moveJewel(TARGET_JEWEL_COLOR);
+
+        // Waits for the column after the jewel only if it is not sure yet, with the whole
+        // WAIT_FOR_VUMARK the camera had before the jewel moved to PLAY.
         runtime.reset();
-        while ((vuMark == RelicRecoveryVuMark.UNKNOWN) && (runtime.milliseconds()< WAIT_FOR_VUMARK)) {
-            vuMark = btVumark.getVuMark();
+        BT_Vumark.Reading reading = new BT_Vumark.Reading();
+        btVumark.getReading(reading);
+        while ((reading.vuMark == RelicRecoveryVuMark.UNKNOWN || reading.confidence < MIN_VUMARK_CONFIDENCE)
+                && runtime.milliseconds() < WAIT_FOR_VUMARK && opModeIsActive()) {
+            BT_Clock.sleep(BT_Vumark.TRACK_INTERVAL_MS);
+            btVumark.getReading(reading);
         }
+        RelicRecoveryVuMark vuMark = reading.vuMark;
         switch (vuMark) {
             case RIGHT :
                 driveDist = RIGHT_DRIVE_DIST ;
@@ -118,30 +180,112 @@ public class BT_AutoSuper extends LinearOpMode {
                 break;
         }
 
-        robot.jewels.moveJewel(TARGET_JEWEL_COLOR);
-
-        telemetry.addData("Status", "Identified column: %s ",vuMark);
+        telemetry.addData("Status", "Identified column: %s %.0f%%", vuMark, reading.confidence * 100);
         telemetry.addData("dist", driveDist);
         telemetry.setAutoClear(false);
         telemetry.update();
-        sleep(500);
+        BT_Clock.sleep(500);
         driveToCrypto(driveDist);
         putCube(driveDist);
+        robot.drive.odometry.getPose(cryptoPose);
         put2Cubes();
     }
     public void driveToCrypto(double driveDist){
     }
+
+    /**
+     * Plans driveToCrypto for the three columns, so whichever the VuMark shows, its moves are
+     * looked up after PLAY.
+     */
+    protected void planRoutes(){
+        double[] columns = {LEFT_DRIVE_DIST, CENTER_DRIVE_DIST, RIGHT_DRIVE_DIST};
+        for (final double driveDist : columns) {
+            robot.drive.planRoute(0, 0, 0, new Runnable() {
+                @Override
+                public void run() {
+                    driveToCrypto(driveDist);
+                }
+            });
+        }
+    }
+
+    private File trajectoryFile(){
+        File dir = trajectoryDir != null ? trajectoryDir : AppUtil.ROBOT_DATA_DIR;
+        return new File(dir, "BT_Trajectories_" + getClass().getSimpleName() + ".bin");
+    }
+
+    private void loadTrajectories(){
+        try {
+            robot.drive.trajectories.load(trajectoryFile());
+        }
+        catch (IOException e) {
+            BT_Status.addLine(BT_Status.Severity.WARNING, "Trajectories not loaded: " + e.getMessage());
+        }
+    }
+
+    private void saveTrajectories(){
+        if (!robot.drive.trajectories.isChanged()) {
+            return;
+        }
+        try {
+            robot.drive.trajectories.save(trajectoryFile());
+        }
+        catch (IOException e) {
+            BT_Status.addLine(BT_Status.Severity.WARNING, "Trajectories not saved: " + e.getMessage());
+        }
+    }
     public void putCube (double driveDist){
         robot.drive.turn(CRYPTO_TURN, 3000, telemetry, true);
         robot.drive.move(CRYPTO_DIST, BT_MecanumDrive.DriveDirection.FORWARD, 1000, telemetry, 0.3);
         robot.intake.glyphsOut();
-        sleep(500);
+        BT_Clock.sleep(500);
         robot.drive.move(5, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry);
-        sleep(250);
+        BT_Clock.sleep(250);
         robot.intake.stop();
         robot.drive.move(17, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry);
         robot.drive.turn(FINAL_ROBOT_ANGLE, 5000, telemetry, true);
     }
     public void put2Cubes (){
+        BT_Action action = put2CubesAction();
+        if (action != null) {
+            runActions("put2Cubes", action);
+        }
+    }
+
+    /**
+     * @return The non blocking routine for the extra cubes, or null if put2Cubes is used instead.
+     */
+    public BT_Action put2CubesAction (){
+        return null;
+    }
+
+    /**
+     * The waypoint forward and right of cryptoPose, in cm, as seen facing FINAL_ROBOT_ANGLE.
+     * @param heading The field heading at the waypoint.
+     * @param speed The speed on the way to it.
+     */
+    protected BT_PathFollower.Waypoint cryptoPoint(double forward, double right, double heading, double speed){
+        double rad = Math.toRadians(FINAL_ROBOT_ANGLE);
+        return new BT_PathFollower.Waypoint(
+                cryptoPose.x + forward * Math.cos(rad) + right * Math.sin(rad),
+                cryptoPose.y + forward * Math.sin(rad) - right * Math.cos(rad),
+                heading, speed);
+    }
+
+    /**
+     * Runs the action until it is done, and reports the time it took.
+     */
+    protected void runActions(String name, BT_Action action){
+        double ms = BT_Scheduler.run(this, action);
+        BT_Status.addLine(name + ": " + (int) ms + " ms");
+        telemetry.addData(name, "%.0f ms", ms);
+        telemetry.update();
+    }
+
+    /**
+     * Runs the actions at the same time, or one after the other if OVERLAP_ACTIONS is false.
+     */
+    protected BT_Action together(BT_Action... actions){
+        return OVERLAP_ACTIONS ? BT_Action.parallel(actions) : BT_Action.sequence(actions);
     }
 }
@@ -0,0 +1,50 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This is NOT an opmode.
+ *
+ * The time source of the robot code. On the robot it is the system clock, in the simulation
+ * (BT_SimHardware, in TeamCodeSim) it is the simulated time, so the opmodes can run faster than
+ * real time.
+ * Use {@link BT_Timer} instead of ElapsedTime and {@link #sleep(long)} instead of Thread.sleep.
+ */
+public class BT_Clock {
+    public interface Source {
+        long nanoTime();
+        void sleep(long milliseconds) throws InterruptedException;
+    }
+
+    private static volatile Source source = null;
+
+    private BT_Clock() {
+    }
+
+    /**
+     * Sets the time source, null goes back to the system clock.
+     */
+    public static void setSource(Source newSource) {
+        source = newSource;
+    }
+
+    public static long nanoTime() {
+        Source current = source;
+        return current == null ? System.nanoTime() : current.nanoTime();
+    }
+
+    /**
+     * Sleeps for the given time, or until the thread is interrupted (like LinearOpMode.sleep).
+     */
+    public static void sleep(long milliseconds) {
+        Source current = source;
+        try {
+            if (current == null) {
+                Thread.sleep(milliseconds);
+            }
+            else {
+                current.sleep(milliseconds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
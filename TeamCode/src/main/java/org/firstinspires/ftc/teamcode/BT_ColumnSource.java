@@ -0,0 +1,15 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+
+import org.firstinspires.ftc.robotcore.external.navigation.RelicRecoveryVuMark;
+
+/**
+ * This is NOT an opmode.
+ *
+ * A device of the hardware map that tells the column, for a robot without a camera such as the
+ * simulation. When the hardware map has one, {@link BT_Vumark} reads it instead of Vuforia.
+ */
+public interface BT_ColumnSource extends HardwareDevice {
+    RelicRecoveryVuMark getVuMark();
+}
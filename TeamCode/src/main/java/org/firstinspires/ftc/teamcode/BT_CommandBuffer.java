@@ -0,0 +1,210 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Buffer between the subsystems and their motors and servos, owned by {@link BT_Hardware}.
+ * Writes of a value the device already has are dropped. Once deferred (from the first
+ * {@link BT_Hardware#startCycle()}) the changed writes are held until {@link #flush()} sends them
+ * together at the end of the loop. Before that every changed write goes straight to the hardware,
+ * so the linear autonomous opmodes work as before.
+ *
+ * A device must only be written through the buffer, otherwise it can not know its real value.
+ */
+public class BT_CommandBuffer {
+    private static class MotorEntry {
+        final DcMotor motor;
+        // Values known to be on the hardware.
+        double power;
+        DcMotor.RunMode mode;
+        int target;
+        boolean powerKnown = false;
+        boolean targetKnown = false;
+        // Values waiting for the next flush.
+        double pendingPower;
+        DcMotor.RunMode pendingMode;
+        int pendingTarget;
+        boolean powerDirty = false;
+        boolean modeDirty = false;
+        boolean targetDirty = false;
+
+        MotorEntry(DcMotor motor) {
+            this.motor = motor;
+        }
+    }
+
+    private static class ServoEntry {
+        final Servo servo;
+        double position;
+        boolean positionKnown = false;
+        double pendingPosition;
+        boolean positionDirty = false;
+
+        ServoEntry(Servo servo) {
+            this.servo = servo;
+        }
+    }
+
+    private final Map<DcMotor, MotorEntry> motors = new HashMap<DcMotor, MotorEntry>();
+    private final Map<Servo, ServoEntry> servos = new HashMap<Servo, ServoEntry>();
+    // Flush order is the order the devices were first written.
+    private final List<MotorEntry> motorList = new ArrayList<MotorEntry>();
+    private final List<ServoEntry> servoList = new ArrayList<ServoEntry>();
+
+    private boolean deferred = false;
+    private int writes = 0;
+    private int lastCycleWrites = 0;
+
+    /* Constructor */
+    public BT_CommandBuffer(){
+    }
+
+    /**
+     * Starts a new control cycle. From now on writes are held until {@link #flush()}.
+     */
+    public void startCycle() {
+        deferred = true;
+        lastCycleWrites = writes;
+        writes = 0;
+    }
+
+    public void setPower(DcMotor motor, double power) {
+        MotorEntry entry = getEntry(motor);
+        if (entry.powerKnown && entry.power == power) {
+            entry.powerDirty = false;
+            return;
+        }
+        entry.pendingPower = power;
+        entry.powerDirty = true;
+        if (!deferred) {
+            flush(entry);
+        }
+    }
+
+    public void setMode(DcMotor motor, DcMotor.RunMode mode) {
+        MotorEntry entry = getEntry(motor);
+        if (mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+            // Resetting is an action rather than a state, send it right away and forget the
+            // values it changes on the motor.
+            flush(entry);
+            motor.setMode(mode);
+            writes++;
+            entry.mode = mode;
+            entry.modeDirty = false;
+            entry.powerKnown = false;
+            entry.targetKnown = false;
+            return;
+        }
+        if (entry.mode == mode) {
+            entry.modeDirty = false;
+            return;
+        }
+        entry.pendingMode = mode;
+        entry.modeDirty = true;
+        if (!deferred) {
+            flush(entry);
+        }
+    }
+
+    public void setTargetPosition(DcMotor motor, int target) {
+        MotorEntry entry = getEntry(motor);
+        if (entry.targetKnown && entry.target == target) {
+            entry.targetDirty = false;
+            return;
+        }
+        entry.pendingTarget = target;
+        entry.targetDirty = true;
+        if (!deferred) {
+            flush(entry);
+        }
+    }
+
+    public void setPosition(Servo servo, double position) {
+        ServoEntry entry = servos.get(servo);
+        if (entry == null) {
+            entry = new ServoEntry(servo);
+            servos.put(servo, entry);
+            servoList.add(entry);
+        }
+        if (entry.positionKnown && entry.position == position) {
+            entry.positionDirty = false;
+            return;
+        }
+        entry.pendingPosition = position;
+        entry.positionDirty = true;
+        if (!deferred) {
+            flush(entry);
+        }
+    }
+
+    /**
+     * Sends all the changed writes to the hardware. Call once at the end of every loop.
+     */
+    public void flush() {
+        for (int i = 0; i < motorList.size(); i++) {
+            flush(motorList.get(i));
+        }
+        for (int i = 0; i < servoList.size(); i++) {
+            flush(servoList.get(i));
+        }
+    }
+
+    /**
+     * @return The number of hardware writes made in the last complete cycle.
+     */
+    public int getLastCycleWrites() {
+        return lastCycleWrites;
+    }
+
+    private MotorEntry getEntry(DcMotor motor) {
+        MotorEntry entry = motors.get(motor);
+        if (entry == null) {
+            entry = new MotorEntry(motor);
+            motors.put(motor, entry);
+            motorList.add(entry);
+        }
+        return entry;
+    }
+
+    private void flush(MotorEntry entry) {
+        // Same order as a direct RUN_TO_POSITION move: target, mode and then power.
+        if (entry.targetDirty) {
+            entry.motor.setTargetPosition(entry.pendingTarget);
+            entry.target = entry.pendingTarget;
+            entry.targetKnown = true;
+            entry.targetDirty = false;
+            writes++;
+        }
+        if (entry.modeDirty) {
+            entry.motor.setMode(entry.pendingMode);
+            entry.mode = entry.pendingMode;
+            entry.modeDirty = false;
+            writes++;
+        }
+        if (entry.powerDirty) {
+            entry.motor.setPower(entry.pendingPower);
+            entry.power = entry.pendingPower;
+            entry.powerKnown = true;
+            entry.powerDirty = false;
+            writes++;
+        }
+    }
+
+    private void flush(ServoEntry entry) {
+        if (entry.positionDirty) {
+            entry.servo.setPosition(entry.pendingPosition);
+            entry.position = entry.pendingPosition;
+            entry.positionKnown = true;
+            entry.positionDirty = false;
+            writes++;
+        }
+    }
+}
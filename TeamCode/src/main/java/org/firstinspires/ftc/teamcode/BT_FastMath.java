@@ -0,0 +1,68 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Table trigonometry for the drive math that runs every loop, in place of Math.sin, Math.cos and
+ * Math.atan2, which are slow on the older phones. Both tables are linearly interpolated:
+ *
+ *  - sin and cos from SIN_SIZE points of a full turn, off by at most SIN_MAX_ERROR.
+ *  - atan2 from ATAN_SIZE points of atan on [0, 1], the other octants are mirrored onto it.
+ *    It is off by at most ATAN2_MAX_ERROR radians, and gives 0 for (0, 0) like Math.atan2.
+ *
+ * The tables are 8 KB and 2 KB, built once, and nothing allocates after.
+ */
+public class BT_FastMath {
+    static final int SIN_SIZE = 1024;
+    static final int ATAN_SIZE = 256;
+    // Bounds of the interpolation error, (step^2 / 8) * max |f''|, checked against Math.
+    public static final double SIN_MAX_ERROR = 5e-6;
+    public static final double ATAN2_MAX_ERROR = 2e-6;
+
+    private static final double SIN_STEPS_PER_RAD = SIN_SIZE / (2 * Math.PI);
+    // One point more than the table, so the interpolation never wraps.
+    private static final double[] SIN = new double[SIN_SIZE + 1];
+    private static final double[] ATAN = new double[ATAN_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= SIN_SIZE; i++) {
+            SIN[i] = Math.sin(i / SIN_STEPS_PER_RAD);
+        }
+        for (int i = 0; i <= ATAN_SIZE; i++) {
+            ATAN[i] = Math.atan((double) i / ATAN_SIZE);
+        }
+    }
+
+    private BT_FastMath() {
+    }
+
+    public static double sin(double rad) {
+        double index = rad * SIN_STEPS_PER_RAD;
+        double floor = Math.floor(index);
+        int i = (int) ((long) floor & (SIN_SIZE - 1));
+        return SIN[i] + (index - floor) * (SIN[i + 1] - SIN[i]);
+    }
+
+    public static double cos(double rad) {
+        return sin(rad + Math.PI / 2);
+    }
+
+    public static double atan2(double y, double x) {
+        double ax = Math.abs(x);
+        double ay = Math.abs(y);
+        if (ax == 0 && ay == 0) {
+            return 0;
+        }
+        boolean steep = ay > ax;
+        double index = (steep ? ax / ay : ay / ax) * ATAN_SIZE;
+        int i = (int) index;
+        double angle = i == ATAN_SIZE ? ATAN[i] : ATAN[i] + (index - i) * (ATAN[i + 1] - ATAN[i]);
+        if (steep) {
+            angle = Math.PI / 2 - angle;
+        }
+        if (x < 0) {
+            angle = Math.PI - angle;
+        }
+        return y < 0 ? -angle : angle;
+    }
+}
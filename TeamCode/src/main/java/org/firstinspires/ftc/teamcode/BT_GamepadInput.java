@@ -0,0 +1,180 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Snapshot of a gamepad, taken once per loop by update, with the button edges and the deadbanded
+ * axes. The systems read the snapshot instead of the Gamepad, so they all see the same loop and
+ * none of them compares against thresholds again.
+ *
+ *  - A button change is only taken DEBOUNCE_MS after the last one, and the triggers are buttons
+ *    past TRIGGER_THRESHOLD too.
+ *  - wasPressed and wasReleased are true in the one loop of the change, so an action on them runs
+ *    once per press. wasHeld is true in the one loop the button has been down for HOLD_MS.
+ *  - subscribe runs a Runnable from update on an event, in the order of the subscriptions.
+ *
+ * update copies the fields into arrays and does not allocate.
+ */
+public class BT_GamepadInput {
+    public enum Button {
+        A, B, X, Y, DPAD_UP, DPAD_DOWN, DPAD_LEFT, DPAD_RIGHT, LEFT_BUMPER, RIGHT_BUMPER,
+        LEFT_TRIGGER, RIGHT_TRIGGER, LEFT_STICK_BUTTON, RIGHT_STICK_BUTTON, START, BACK
+    }
+
+    public enum Axis {
+        LEFT_STICK_X, LEFT_STICK_Y, RIGHT_STICK_X, RIGHT_STICK_Y, LEFT_TRIGGER, RIGHT_TRIGGER
+    }
+
+    public enum Event {
+        PRESSED, RELEASED, HELD
+    }
+
+    static final double DEADBAND = 0.2;
+    static final double TRIGGER_THRESHOLD = 0.5;
+    static final double DEBOUNCE_MS = 30;
+    static final double HOLD_MS = 500;
+
+    private static final Button[] BUTTONS = Button.values();
+
+    private static class Subscription {
+        final Button button;
+        final Event event;
+        final Runnable action;
+
+        Subscription(Button button, Event event, Runnable action) {
+            this.button = button;
+            this.event = event;
+            this.action = action;
+        }
+    }
+
+    private final boolean[] raw = new boolean[BUTTONS.length];
+    private final boolean[] down = new boolean[BUTTONS.length];
+    private final boolean[] pressed = new boolean[BUTTONS.length];
+    private final boolean[] released = new boolean[BUTTONS.length];
+    private final boolean[] held = new boolean[BUTTONS.length];
+    private final boolean[] heldFired = new boolean[BUTTONS.length];
+    private final long[] changedNs = new long[BUTTONS.length];
+    private final double[] axes = new double[Axis.values().length];
+    private final List<Subscription> subscriptions = new ArrayList<Subscription>();
+
+    /* Constructor */
+    public BT_GamepadInput() {
+    }
+
+    /**
+     * Runs the action from update when the event happens to the button.
+     */
+    public void subscribe(Button button, Event event, Runnable action) {
+        subscriptions.add(new Subscription(button, event, action));
+    }
+
+    /**
+     * Takes the snapshot of this loop and runs the subscriptions of its events.
+     */
+    public void update(Gamepad gamepad) {
+        long now = BT_Clock.nanoTime();
+        axes[Axis.LEFT_STICK_X.ordinal()] = deadband(gamepad.left_stick_x);
+        axes[Axis.LEFT_STICK_Y.ordinal()] = deadband(gamepad.left_stick_y);
+        axes[Axis.RIGHT_STICK_X.ordinal()] = deadband(gamepad.right_stick_x);
+        axes[Axis.RIGHT_STICK_Y.ordinal()] = deadband(gamepad.right_stick_y);
+        axes[Axis.LEFT_TRIGGER.ordinal()] = deadband(gamepad.left_trigger);
+        axes[Axis.RIGHT_TRIGGER.ordinal()] = deadband(gamepad.right_trigger);
+
+        raw[Button.A.ordinal()] = gamepad.a;
+        raw[Button.B.ordinal()] = gamepad.b;
+        raw[Button.X.ordinal()] = gamepad.x;
+        raw[Button.Y.ordinal()] = gamepad.y;
+        raw[Button.DPAD_UP.ordinal()] = gamepad.dpad_up;
+        raw[Button.DPAD_DOWN.ordinal()] = gamepad.dpad_down;
+        raw[Button.DPAD_LEFT.ordinal()] = gamepad.dpad_left;
+        raw[Button.DPAD_RIGHT.ordinal()] = gamepad.dpad_right;
+        raw[Button.LEFT_BUMPER.ordinal()] = gamepad.left_bumper;
+        raw[Button.RIGHT_BUMPER.ordinal()] = gamepad.right_bumper;
+        raw[Button.LEFT_TRIGGER.ordinal()] = gamepad.left_trigger > TRIGGER_THRESHOLD;
+        raw[Button.RIGHT_TRIGGER.ordinal()] = gamepad.right_trigger > TRIGGER_THRESHOLD;
+        raw[Button.LEFT_STICK_BUTTON.ordinal()] = gamepad.left_stick_button;
+        raw[Button.RIGHT_STICK_BUTTON.ordinal()] = gamepad.right_stick_button;
+        raw[Button.START.ordinal()] = gamepad.start;
+        raw[Button.BACK.ordinal()] = gamepad.back;
+
+        for (int i = 0; i < BUTTONS.length; i++) {
+            pressed[i] = false;
+            released[i] = false;
+            held[i] = false;
+            double sinceChangeMs = (now - changedNs[i]) / 1e6;
+            if (raw[i] != down[i] && sinceChangeMs >= DEBOUNCE_MS) {
+                down[i] = raw[i];
+                changedNs[i] = now;
+                pressed[i] = raw[i];
+                released[i] = !raw[i];
+                heldFired[i] = false;
+            }
+            else if (down[i] && !heldFired[i] && sinceChangeMs >= HOLD_MS) {
+                held[i] = true;
+                heldFired[i] = true;
+            }
+        }
+
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription subscription = subscriptions.get(i);
+            int button = subscription.button.ordinal();
+            boolean fired;
+            switch (subscription.event) {
+                case PRESSED:
+                    fired = pressed[button];
+                    break;
+                case RELEASED:
+                    fired = released[button];
+                    break;
+                default:
+                    fired = held[button];
+                    break;
+            }
+            if (fired) {
+                subscription.action.run();
+            }
+        }
+    }
+
+    public boolean isDown(Button button) {
+        return down[button.ordinal()];
+    }
+
+    /**
+     * @return True in the loop the button went down.
+     */
+    public boolean wasPressed(Button button) {
+        return pressed[button.ordinal()];
+    }
+
+    /**
+     * @return True in the loop the button went up.
+     */
+    public boolean wasReleased(Button button) {
+        return released[button.ordinal()];
+    }
+
+    /**
+     * @return True in the loop the button has been down for HOLD_MS.
+     */
+    public boolean wasHeld(Button button) {
+        return held[button.ordinal()];
+    }
+
+    /**
+     * @return The axis, 0 within DEADBAND. The sticks are as on the Gamepad, up is negative y.
+     */
+    public double getAxis(Axis axis) {
+        return axes[axis.ordinal()];
+    }
+
+    static double deadband(double value) {
+        return Math.abs(value) < DEADBAND ? 0 : value;
+    }
+}
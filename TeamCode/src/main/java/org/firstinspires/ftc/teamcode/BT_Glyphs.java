@@ -33,9 +33,9 @@ import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
-import com.qualcomm.robotcore.hardware.Gamepad;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.util.ElapsedTime;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 
@@ -73,7 +73,14 @@ public class BT_Glyphs {
     public Servo downClamps = null;
 
     public DcMotor armMotor = null;
+    public BT_ArmController arm = new BT_ArmController(COUNTS_PER_DEG);
     BT_Intake intake = null;
+    // Per loop sensor snapshot, shared by BT_Hardware.
+    BT_SensorCache sensors = new BT_SensorCache();
+    // Write buffer for the arm motor and servos, shared by BT_Hardware.
+    BT_CommandBuffer commands = new BT_CommandBuffer();
+    // Moves the arm servo, shared by BT_Hardware.
+    BT_ServoMotion servos = new BT_ServoMotion();
 
     static final double COUNTS_PER_MOTOR_REV = 28;
     static final double DRIVE_GEAR_REDUCTION = 60;     // This is < 1.0 if geared UP
@@ -90,8 +97,8 @@ public class BT_Glyphs {
 
     public static final double ARM_MANUAL_DOWN_POWER = 0.1;
     public static final double ARM_MANUAL_UP_POWER = 0.5;
-    public static final double ARM_AUTO_UP_POWER = 0.2;
-    public static final double ARM_AUTO_DOWN_POWER = 0.2;
+    // Longest wait of the autonomous arm moves.
+    static final double ARM_MOVE_TIMEOUT_MS = 2000;
 
     public static final double UP_CLAMPS_OPEN_POS = 0.2;
     public static final double UP_CLAMPS_CLOSE_POS = 0;
@@ -99,7 +106,8 @@ public class BT_Glyphs {
     public static final double DOWN_CLAMPS_CLOSE_POS = 0;
     public static final double SERVO_HIGH_POS = 0.74;
     public static final double SERVO_DOWN_POS = 0;
-    public static final double SERVO_INTERVAL = 0.02;
+    // Manual arm servo speed at full stick, in position per second.
+    public static final double SERVO_MANUAL_SPEED = 1;
 
     public int targetPos = 0;
     public int servoCount = 0;
@@ -130,18 +138,27 @@ public class BT_Glyphs {
         downClamps.setDirection(Servo.Direction.REVERSE);
         armMotor.setDirection(DcMotorSimple.Direction.FORWARD);
 
-        armMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        armMotor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
         armMotor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        arm.init(armMotor);
+        arm.resetEncoder();
 
         armDown(true);
     }
 
     public void moveArm(int pos) {
-        armMotor.setTargetPosition(pos);
         targetPos = pos;
-        armMotor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        armMotor.setPower((pos-armMotor.getCurrentPosition()) > 0 ? ARM_AUTO_UP_POWER : ARM_AUTO_DOWN_POWER);
+        arm.moveTo(pos);
+    }
+
+    /**
+     * Waits until the arm is above the position, for at most ARM_MOVE_TIMEOUT_MS.
+     */
+    private void waitForArmAbove(double pos) {
+        LinearOpMode opMode = (LinearOpMode) callerOpmode;
+        ElapsedTime timer = new BT_Timer();
+        while (arm.getPosition() <= pos && opMode.opModeIsActive() && timer.milliseconds() < ARM_MOVE_TIMEOUT_MS) {
+            BT_Clock.sleep(BT_ArmController.UPDATE_INTERVAL_MS);
+        }
     }
     public void ejectGlyphs(boolean on) {
         if (on) {
@@ -161,17 +178,39 @@ public class BT_Glyphs {
         catchGlyphs();
         ejectGlyphs(true);
         moveArm(ARM_HIGH_POS);
-        while (armMotor.getCurrentPosition() <= ARM_HIGH_POS*0.4) {
-        }
+        waitForArmAbove(ARM_HIGH_POS*0.4);
         ejectGlyphs(false);
         moveServo(SERVO_HIGH_POS);
     }
+    /**
+     * Non blocking version of autoArmHigh, to be run by {@link BT_Scheduler}.
+     */
+    public BT_Action armHighAction(){
+        return new BT_Action() {
+            @Override
+            public void start() {
+                catchGlyphs();
+                ejectGlyphs(true);
+                moveArm(ARM_HIGH_POS);
+            }
+
+            @Override
+            public boolean update() {
+                return arm.getPosition() > ARM_HIGH_POS*0.4;
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                ejectGlyphs(false);
+                moveServo(SERVO_HIGH_POS);
+            }
+        };
+    }
     public void autoArmMid(){
         catchGlyphs();
         ejectGlyphs(true);
         moveArm(ARM_MID_POS);
-        while ((armMotor.getCurrentPosition() <= ARM_HIGH_POS*0.4) && ((LinearOpMode)callerOpmode).opModeIsActive()) {
-        }
+        waitForArmAbove(ARM_HIGH_POS*0.4);
         ejectGlyphs(false);
         moveServo(SERVO_HIGH_POS);
     }
@@ -191,35 +230,38 @@ public class BT_Glyphs {
     }
 
     public void moveServo (double pos){
-        armServo.setPosition(pos);
+        servos.jumpTo(armServo, pos);
     }
 
     public void moveClamps (Servo clamps, double pos){
-        clamps.setPosition(pos);
+        commands.setPosition(clamps, pos);
     }
 
-    public void teleopMotion(Gamepad gamepad, Telemetry telemetry){
-        final double JOYSTICK_THRESHOLD = 0.2;
+    public void teleopMotion(BT_GamepadInput gamepad, Telemetry telemetry){
         double armMotorPower;
         double armServoPower;
 
-        boolean catchGlyphs = (gamepad.right_trigger > 0.5);
-        boolean releaseGlyphs = (gamepad.left_trigger > 0.5);
-        boolean glyphsHigh = gamepad.y;
-        boolean glyphsDown = gamepad.a;
-        boolean glyphsLow = gamepad.b;
-        boolean armDownNoRelese = gamepad.dpad_down;
-        boolean resetArmPos = gamepad.left_bumper && gamepad.right_bumper;
+        boolean catchGlyphs = gamepad.isDown(BT_GamepadInput.Button.RIGHT_TRIGGER);
+        boolean releaseGlyphs = gamepad.isDown(BT_GamepadInput.Button.LEFT_TRIGGER);
+        boolean glyphsHigh = gamepad.wasPressed(BT_GamepadInput.Button.Y);
+        boolean glyphsDown = gamepad.wasPressed(BT_GamepadInput.Button.A);
+        boolean glyphsLow = gamepad.wasPressed(BT_GamepadInput.Button.B);
+        boolean armDownNoRelese = gamepad.wasPressed(BT_GamepadInput.Button.DPAD_DOWN);
+        // Once, when the second bumper goes down.
+        boolean resetArmPos = (gamepad.wasPressed(BT_GamepadInput.Button.LEFT_BUMPER)
+                && gamepad.isDown(BT_GamepadInput.Button.RIGHT_BUMPER))
+                || (gamepad.wasPressed(BT_GamepadInput.Button.RIGHT_BUMPER)
+                && gamepad.isDown(BT_GamepadInput.Button.LEFT_BUMPER));
 
         if(resetArmPos){
             resetArmPos();
         }
 
         // Handle manual arm control
-        armMotorPower = -gamepad.left_stick_y;
-        boolean isTooHigh = (MAX_ARM_POS < armMotor.getCurrentPosition()) && (armMotorPower > 0);
-        boolean isTooLow = (MIN_ARM_POS > armMotor.getCurrentPosition()) && (armMotorPower < 0);
-        if ((Math.abs(armMotorPower) < JOYSTICK_THRESHOLD) || isTooHigh || isTooLow) {
+        armMotorPower = -gamepad.getAxis(BT_GamepadInput.Axis.LEFT_STICK_Y);
+        boolean isTooHigh = (MAX_ARM_POS < arm.getPosition()) && (armMotorPower > 0);
+        boolean isTooLow = (MIN_ARM_POS > arm.getPosition()) && (armMotorPower < 0);
+        if ((armMotorPower == 0) || isTooHigh || isTooLow) {
             if (armState == ArmState.MANUAL) {
                 armState = ArmState.HOLD;
             }
@@ -228,23 +270,23 @@ public class BT_Glyphs {
             armState = ArmState.MANUAL;
         }
         telemetry.addLine("GLYPHS");
-        telemetry.addData(" arm pos: ", armMotor.getCurrentPosition());
+        telemetry.addData(" arm pos: ", arm.getPosition());
         telemetry.addData(" current pos: ", targetPos);
 
         // Handle manual servo control
-        armServoPower = -gamepad.right_stick_y;
-        if (Math.abs(armServoPower) < JOYSTICK_THRESHOLD){
-            armServoPower=0;
+        armServoPower = -gamepad.getAxis(BT_GamepadInput.Axis.RIGHT_STICK_Y);
+        if(armServoPower > 0) {
+            servos.moveTo(armServo, 1, SERVO_MANUAL_SPEED * armServoPower);
         }
-        if(armServoPower > 0 && armServo.getPosition() < 1) {
-            moveServo(armServo.getPosition()+SERVO_INTERVAL);
+        else if (armServoPower < 0) {
+            servos.moveTo(armServo, 0, -SERVO_MANUAL_SPEED * armServoPower);
         }
-        else if (armServoPower < 0 && armServo.getPosition() > 0) {
-            moveServo(armServo.getPosition()-SERVO_INTERVAL);
+        else {
+            servos.hold(armServo);
         }
-        telemetry.addData(" servo pos: ", armServo.getPosition());
-        telemetry.addData(" upClamps pos: ", upClamps.getPosition());
-        telemetry.addData(" downClamps pos: ", downClamps.getPosition());
+        telemetry.addData(" servo pos: ", servos.getPosition(armServo));
+        telemetry.addData(" upClamps pos: ", sensors.getPosition(upClamps));
+        telemetry.addData(" downClamps pos: ", sensors.getPosition(downClamps));
 
         // Handle automatic operations
         //clamps system
@@ -277,9 +319,8 @@ public class BT_Glyphs {
                 break;
             case MANUAL:
                 armMotorPower = armMotorPower * (armMotorPower > 0 ? ARM_MANUAL_UP_POWER : ARM_MANUAL_DOWN_POWER);
-                armMotor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-                armMotor.setPower(armMotorPower);
-                targetPos = armMotor.getCurrentPosition();
+                arm.setManualPower(armMotorPower);
+                targetPos = arm.getPosition();
                 break;
             case SERVO_DOWN:
                 moveServo(SERVO_DOWN_POS);
@@ -306,7 +347,7 @@ public class BT_Glyphs {
             case HIGH_ARM:
                 ejectGlyphs(true);
                 armHigh();
-                if (armMotor.getCurrentPosition() >= ARM_HIGH_POS*0.3){
+                if (arm.getPosition() >= ARM_HIGH_POS*0.3){
                     moveServo(SERVO_HIGH_POS);
                     armState = ArmState.HOLD;
                     ejectGlyphs(false);
@@ -317,7 +358,7 @@ public class BT_Glyphs {
                 if (!doneHigh) {
                     ejectGlyphs(true);
                     armHigh();
-                    if (armMotor.getCurrentPosition() >= ARM_HIGH_POS*0.5) {
+                    if (arm.getPosition() >= ARM_HIGH_POS*0.5) {
                         moveServo(SERVO_HIGH_POS);
                         doneHigh = true;
                         ejectGlyphs(false);
@@ -342,7 +383,6 @@ public class BT_Glyphs {
         moveClamps(downClamps, DOWN_CLAMPS_OPEN_POS);
     }
     public void resetArmPos(){
-        armMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        armMotor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        arm.resetEncoder();
     }
  }
@@ -56,10 +56,104 @@ import java.util.Locale;
  */
 public class BT_Gyro
     {
+    // BNO055 fusion data is updated at 100Hz, no point in sampling it faster.
+    static final long SAMPLE_INTERVAL_MS = 10;
+
     // The IMU sensor object
     BNO055IMU imu;
 
+    // Background sampler of the heading, see startSampling().
+    private final BT_PeriodicWorker sampler = new BT_PeriodicWorker(
+            "BT_Gyro sampler", SAMPLE_INTERVAL_MS, new Runnable() {
+                @Override
+                public void run() {
+                    sample();
+                }
+            });
+    // Latest sample. sampleSeq is odd while the sampler is writing a new one.
+    private volatile int sampleSeq = 0;
+    private volatile double sampleAngle = 0;
+    private volatile long sampleTimeNs = 0;
+    private volatile long sampleCount = 0;
+    private volatile long samplingStartNs = 0;
+
+    // Added to the IMU angle so the raw angle goes on across a re-init, which zeroes the IMU.
+    private volatile double reinitOffset = 0;
+    // Added to the raw angle by zeroHeading.
+    private volatile double headingOffset = 0;
+    // Raw angle held while reinitAsync runs, the IMU can not be read then.
+    private volatile boolean reinitializing = false;
+    private volatile double heldRawAngle = 0;
+    private Thread reinitializer = null;
+    // Sampling goes on after the re-init, unless stopSampling was called during it.
+    private boolean resumeSampling = false;
+
     public void init(HardwareMap hardwareMap) {
+        // Don't read the IMU while it is being initialized.
+        boolean wasSampling = sampler.isRunning();
+        stopSampling();
+        initImu(hardwareMap);
+        if (wasSampling) {
+            startSampling();
+        }
+    }
+
+    /**
+     * Initializes the IMU again on a background thread, which takes about a second. Until it is
+     * done getAngle gives the last heading, and after it the heading goes on from there.
+     *
+     * The heading is held, not measured, during that second: the robot turning then is lost from
+     * the heading for good, so only re-init while the robot stands still.
+     */
+    public synchronized void reinitAsync(final HardwareMap hardwareMap) {
+        if (reinitializing) {
+            return;
+        }
+        heldRawAngle = getRawAngle();
+        reinitializing = true;
+        resumeSampling = sampler.isRunning();
+        reinitializer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sampler.stop();
+                try {
+                    initImu(hardwareMap);
+                    reinitOffset = heldRawAngle - readImuAngle();
+                }
+                finally {
+                    synchronized (BT_Gyro.this) {
+                        reinitializing = false;
+                        if (resumeSampling) {
+                            resumeSampling = false;
+                            startSampling();
+                        }
+                    }
+                }
+            }
+        }, "BT_Gyro init");
+        reinitializer.setDaemon(true);
+        reinitializer.start();
+    }
+
+    public boolean isReinitializing() {
+        return reinitializing;
+    }
+
+    /**
+     * Makes the current heading 0 without talking to the IMU.
+     */
+    public void zeroHeading() {
+        setHeading(0);
+    }
+
+    /**
+     * Makes the current heading the given one, in degrees, without talking to the IMU.
+     */
+    public void setHeading(double heading) {
+        headingOffset = heading - getRawAngle();
+    }
+
+    private void initImu(HardwareMap hardwareMap) {
         // Set up the parameters with which we will use our IMU. Note that integration
         // algorithm here just reports accelerations to the logcat log; it doesn't actually
         // provide positional information.
@@ -81,8 +175,100 @@ public class BT_Gyro
         // Start the logging of measured acceleration
         imu.startAccelerationIntegration(new Position(), new Velocity(), 1000);
     }
+
+    /**
+     * Gets the heading, from zeroHeading. While sampling this is the latest sample and never
+     * blocks, otherwise the IMU is read.
+     */
     public double getAngle() {
+        return wrap(getRawAngle() + headingOffset);
+    }
+
+    /**
+     * Gets the heading without the zeroHeading offset, it does not jump when the heading is
+     * zeroed or the IMU initialized again. For the odometry.
+     */
+    public double getRawAngle() {
+        if (reinitializing) {
+            return heldRawAngle;
+        }
+        if (sampler.isRunning() && sampleCount > 0) {
+            double angle;
+            int seq;
+            do {
+                seq = sampleSeq;
+                angle = sampleAngle;
+            } while ((seq & 1) != 0 || seq != sampleSeq);
+            return wrap(angle + reinitOffset);
+        }
+        return wrap(readImuAngle() + reinitOffset);
+    }
+
+    /**
+     * Reads the heading from the IMU, blocking on the I2C transaction.
+     */
+    public double readAngle() {
+        return wrap(readImuAngle() + reinitOffset + headingOffset);
+    }
+
+    private double readImuAngle() {
         Orientation angles = imu.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.DEGREES);
         return angles.firstAngle;
     }
+
+    private static double wrap(double degrees) {
+        while (degrees > 180) degrees -= 360;
+        while (degrees <= -180) degrees += 360;
+        return degrees;
+    }
+
+    /**
+     * Starts polling the IMU every SAMPLE_INTERVAL_MS on a background thread.
+     * Must be matched by stopSampling() when the opmode ends.
+     */
+    public synchronized void startSampling() {
+        if (sampler.isRunning()) {
+            return;
+        }
+        sampleCount = 0;
+        samplingStartNs = BT_Clock.nanoTime();
+        sampler.start();
+    }
+
+    public synchronized void stopSampling() {
+        resumeSampling = false;
+        sampler.stop();
+    }
+
+    public boolean isSampling() {
+        return sampler.isRunning();
+    }
+
+    /**
+     * @return The average sample rate since sampling started, in Hz.
+     */
+    public double getSampleRate() {
+        double seconds = (BT_Clock.nanoTime() - samplingStartNs) / 1e9;
+        return seconds > 0 ? sampleCount / seconds : 0;
+    }
+
+    /**
+     * @return The age of the latest sample in ms, or -1 if there is none.
+     */
+    public double getDataAgeMs() {
+        if (sampleCount == 0) {
+            return -1;
+        }
+        return (BT_Clock.nanoTime() - sampleTimeNs) / 1e6;
+    }
+
+    private void sample() {
+        double angle = readImuAngle();
+
+        sampleSeq++;
+        sampleAngle = angle;
+        sampleTimeNs = BT_Clock.nanoTime();
+        sampleSeq++;
+        sampleCount++;
+    }
 }
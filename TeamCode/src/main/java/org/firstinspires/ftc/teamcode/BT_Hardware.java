@@ -54,6 +54,9 @@ public class BT_Hardware {
     public BT_Jewels jewels = new BT_Jewels();
     public BT_Intake intake = new BT_Intake();
     public BT_Glyphs glyphs = new BT_Glyphs();
+    public BT_SensorCache sensors = new BT_SensorCache();
+    public BT_CommandBuffer commands = new BT_CommandBuffer();
+    public BT_ServoMotion servos = new BT_ServoMotion();
 
     HardwareMap hwMap = null;
 
@@ -66,10 +69,57 @@ public class BT_Hardware {
         // Save reference to Hardware map
         hwMap = ahwMap;
 
+        // Share one sensor snapshot between all systems
+        drive.sensors = sensors;
+        intake.sensors = sensors;
+        glyphs.sensors = sensors;
+        drive.commands = commands;
+        intake.commands = commands;
+        glyphs.commands = commands;
+        jewels.servos = servos;
+        intake.servos = servos;
+        glyphs.servos = servos;
+
         // Define and Initialize systems
         drive.init(hwMap,callerOpmode);
         jewels.init(hwMap,callerOpmode);
         intake.init(hwMap);
         glyphs.init(hwMap,intake, callerOpmode);
     }
-}
\ No newline at end of file
+
+    /**
+     * Starts the background sensor sampling, servo moves and arm control. Call when the driver hits PLAY.
+     */
+    public void start() {
+        drive.gyro.startSampling();
+        servos.start();
+        glyphs.arm.start();
+    }
+
+    /**
+     * Stops the background sensor sampling, the odometry, the servo moves and the arm.
+     * Must be called when the opmode ends.
+     */
+    public void stop() {
+        glyphs.arm.stop();
+        servos.stop();
+        drive.odometry.stopTracking();
+        drive.gyro.stopSampling();
+    }
+
+    /**
+     * Starts a new control cycle, so every sensor is read again once in this loop
+     * and the motor and servo writes are held until {@link #endCycle()}.
+     */
+    public void startCycle() {
+        sensors.startCycle();
+        commands.startCycle();
+    }
+
+    /**
+     * Ends the control cycle, sending all the changed writes together.
+     */
+    public void endCycle() {
+        commands.flush();
+    }
+}
@@ -0,0 +1,102 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Fixed size histogram of times, in the style of HdrHistogram: every power of two range of
+ * microseconds is split into SUB_BUCKETS buckets, so a value is kept with about 3% precision from
+ * 1 us up to the highest time. Recording never allocates.
+ */
+public class BT_Histogram {
+    static final long UNIT_NS = 1000;
+    static final int SUB_BUCKET_BITS = 6;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+    private final long highestNs;
+    private final int[] counts;
+    private long count = 0;
+    private long sumNs = 0;
+    private long maxNs = 0;
+
+    /**
+     * @param highestNs The highest time kept, longer times are counted as this.
+     */
+    public BT_Histogram(long highestNs) {
+        this.highestNs = highestNs;
+        counts = new int[indexOf(highestNs / UNIT_NS) + 1];
+    }
+
+    public void record(long ns) {
+        if (ns < 0) {
+            ns = 0;
+        }
+        if (ns > maxNs) {
+            maxNs = ns;
+        }
+        sumNs += ns;
+        count++;
+        counts[indexOf(Math.min(ns, highestNs) / UNIT_NS)]++;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        sumNs = 0;
+        maxNs = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxNs() {
+        return maxNs;
+    }
+
+    public double getMeanNs() {
+        return count == 0 ? 0 : (double) sumNs / count;
+    }
+
+    /**
+     * @param percentile The percentile [0, 100].
+     * @return The time that the given percent of the values are at or below, 0 if there are none.
+     */
+    public long getPercentileNs(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        if (target >= count) {
+            return maxNs;
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueAt(i) * UNIT_NS, maxNs);
+            }
+        }
+        return maxNs;
+    }
+
+    /**
+     * Values below SUB_BUCKETS have a bucket each. Above that, the top SUB_BUCKET_BITS bits of the
+     * value pick the bucket within its power of two.
+     */
+    static int indexOf(long value) {
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / HALF_SUB_BUCKETS - 1;
+        long lowest = (long) (index - shift * HALF_SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -31,7 +31,6 @@ package org.firstinspires.ftc.teamcode;
 
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.hardware.Gamepad;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.Servo;
 
@@ -62,7 +61,15 @@ public class BT_Intake
     public static final double SERVO_OUT  = 1 ;
     public static final double SERVO_IN = 0 ;
     public static final double STOP_SERVO  = 0.393 ;
+    // The intake servo turns all the time, this ramps its speed, in position per second.
+    public static final double SERVO_RAMP_SPEED = 4;
     public static boolean isPressed = false;
+    // Per loop sensor snapshot, shared by BT_Hardware.
+    BT_SensorCache sensors = new BT_SensorCache();
+    // Write buffer for the intake motors and servo, shared by BT_Hardware.
+    BT_CommandBuffer commands = new BT_CommandBuffer();
+    // Ramps the intake servo, shared by BT_Hardware.
+    BT_ServoMotion servos = new BT_ServoMotion();
     /* local OpMode members. */
     HardwareMap hwMap = null;
 
@@ -92,41 +99,40 @@ public class BT_Intake
         leftIntake.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
         rightIntake.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
         intakeMotor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
-        intakeServo.setPosition(STOP_SERVO);
     }
     public void glyphsIn() {
-        leftIntake.setPower(INTAKE_POWER);
-        rightIntake.setPower(INTAKE_POWER);
-        intakeMotor.setPower(MID_INTAKE_POWER);
-        intakeServo.setPosition(SERVO_IN);
+        commands.setPower(leftIntake, INTAKE_POWER);
+        commands.setPower(rightIntake, INTAKE_POWER);
+        commands.setPower(intakeMotor, MID_INTAKE_POWER);
+        servos.moveTo(intakeServo, SERVO_IN, SERVO_RAMP_SPEED);
     }
 
     public void glyphsOut() {
-        leftIntake.setPower(-INTAKE_POWER);
-        rightIntake.setPower(-INTAKE_POWER);
-        intakeMotor.setPower(-MID_INTAKE_POWER);
-        intakeServo.setPosition(SERVO_OUT);
+        commands.setPower(leftIntake, -INTAKE_POWER);
+        commands.setPower(rightIntake, -INTAKE_POWER);
+        commands.setPower(intakeMotor, -MID_INTAKE_POWER);
+        servos.moveTo(intakeServo, SERVO_OUT, SERVO_RAMP_SPEED);
     }
 
     public void ejectGlyphs() {
-        leftIntake.setPower(EJECT_POWER);
-        rightIntake.setPower(EJECT_POWER);
+        commands.setPower(leftIntake, EJECT_POWER);
+        commands.setPower(rightIntake, EJECT_POWER);
     }
     public void stop() {
         // Set all motors to zero power
-        leftIntake.setPower(0);
-        rightIntake.setPower(0);
-        intakeMotor.setPower(0);
-        intakeServo.setPosition(STOP_SERVO);
+        commands.setPower(leftIntake, 0);
+        commands.setPower(rightIntake, 0);
+        commands.setPower(intakeMotor, 0);
+        servos.moveTo(intakeServo, STOP_SERVO, SERVO_RAMP_SPEED);
     }
-    public void teleopMotion(Gamepad gamepad, Telemetry telemetry){
-        boolean glyphOut = gamepad.left_trigger > 0.5;
-        boolean glyphIn = gamepad.right_trigger > 0.5;
+    public void teleopMotion(BT_GamepadInput gamepad, Telemetry telemetry){
+        boolean glyphOut = gamepad.isDown(BT_GamepadInput.Button.LEFT_TRIGGER);
+        boolean glyphIn = gamepad.isDown(BT_GamepadInput.Button.RIGHT_TRIGGER);
         if (glyphOut) {
             isPressed = true ;
             glyphsOut();
             telemetry.addData("dr: ","glyphs out");
-            telemetry.addLine("power: "+ intakeMotor.getPower());
+            telemetry.addData("power", "%.2f", sensors.getPower(intakeMotor));
         }
         else if (glyphIn) {
             isPressed = true;
@@ -0,0 +1,146 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.NormalizedColorSensor;
+import com.qualcomm.robotcore.hardware.NormalizedRGBA;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Tells the jewel color from a stream of color sensor reads instead of a single one. A background
+ * thread reads the sensor as fast as it answers, at most every SAMPLE_INTERVAL_MS, and keeps the
+ * red - blue balance of the last MEDIAN_WINDOW reads. Their median, which drops single bad reads,
+ * is smoothed with an EMA. Once the EMA is past CONFIDENT_BALANCE the color is decided and
+ * published with its time, so the caller can act on the first confident sample.
+ *
+ * The balance is (red - blue) / (red + blue), so it does not depend on how far the jewel is:
+ * 0 is the gray field, 1 all red and -1 all blue. Since that also holds for a dim read of whatever
+ * is far from the sensor, reads with red + blue below MIN_RED_BLUE are dropped. reset starts the
+ * filter over, for when the sensor reaches the jewel.
+ */
+public class BT_JewelClassifier {
+    static final long SAMPLE_INTERVAL_MS = 10;
+    static final int MEDIAN_WINDOW = 3;
+    static final double EMA_ALPHA = 0.5;
+    static final double CONFIDENT_BALANCE = 0.3;
+    // Least red + blue of a read next to a jewel, the field seen from the raised arm is about 0.1.
+    static final float MIN_RED_BLUE = 0.15f;
+
+    private final NormalizedColorSensor colorSensor;
+    private final float[] balances = new float[MEDIAN_WINDOW];
+    private final float[] sorted = new float[MEDIAN_WINDOW];
+    private int sampleCount = 0;
+    private double ema = 0;
+
+    // Latest decision for other threads.
+    private volatile BT_Jewels.JewelColor decision = BT_Jewels.JewelColor.UNKNOWN;
+    private volatile long decisionTimeNs = 0;
+    private volatile double balance = 0;
+
+    private final BT_PeriodicWorker sampler = new BT_PeriodicWorker(
+            "BT_JewelClassifier sampler", SAMPLE_INTERVAL_MS, new Runnable() {
+                @Override
+                public void run() {
+                    sample();
+                }
+            });
+
+    /* Constructor */
+    public BT_JewelClassifier(NormalizedColorSensor colorSensor) {
+        this.colorSensor = colorSensor;
+    }
+
+    /**
+     * Starts reading the sensor on a background thread, with no decision.
+     * Must be matched by stop().
+     */
+    public synchronized void start() {
+        if (sampler.isRunning()) {
+            return;
+        }
+        reset();
+        sampler.start();
+    }
+
+    public void stop() {
+        sampler.stop();
+    }
+
+    /**
+     * Drops the reads so far and the decision, the next decision is made from reads after this.
+     */
+    public synchronized void reset() {
+        sampleCount = 0;
+        ema = 0;
+        balance = 0;
+        decision = BT_Jewels.JewelColor.UNKNOWN;
+        decisionTimeNs = 0;
+    }
+
+    /**
+     * @return The color, UNKNOWN until the filtered balance is confident. It never blocks.
+     */
+    public BT_Jewels.JewelColor getDecision() {
+        return decision;
+    }
+
+    /**
+     * @return When the current decision was made, in BT_Clock ns, 0 if there is none.
+     */
+    public long getDecisionTimeNs() {
+        return decisionTimeNs;
+    }
+
+    /**
+     * @return The filtered red - blue balance, from -1 to 1.
+     */
+    public double getBalance() {
+        return balance;
+    }
+
+    /**
+     * Adds a read and decides again, it does not allocate. A read below MIN_RED_BLUE is dropped.
+     */
+    synchronized void addSample(float red, float blue) {
+        float sum = red + blue;
+        if (sum < MIN_RED_BLUE) {
+            return;
+        }
+        balances[sampleCount % MEDIAN_WINDOW] = (red - blue) / sum;
+        sampleCount++;
+        if (sampleCount < MEDIAN_WINDOW) {
+            return;
+        }
+
+        ema += EMA_ALPHA * (median() - ema);
+        BT_Jewels.JewelColor color = BT_Jewels.JewelColor.UNKNOWN;
+        if (ema >= CONFIDENT_BALANCE) {
+            color = BT_Jewels.JewelColor.RED;
+        }
+        else if (ema <= -CONFIDENT_BALANCE) {
+            color = BT_Jewels.JewelColor.BLUE;
+        }
+        balance = ema;
+        if (color != decision) {
+            decisionTimeNs = color == BT_Jewels.JewelColor.UNKNOWN ? 0 : BT_Clock.nanoTime();
+            decision = color;
+        }
+    }
+
+    private float median() {
+        for (int i = 0; i < MEDIAN_WINDOW; i++) {
+            float value = balances[i];
+            int j = i;
+            while (j > 0 && sorted[j - 1] > value) {
+                sorted[j] = sorted[j - 1];
+                j--;
+            }
+            sorted[j] = value;
+        }
+        return sorted[MEDIAN_WINDOW / 2];
+    }
+
+    private void sample() {
+        NormalizedRGBA colors = colorSensor.getNormalizedColors();
+        addSample(colors.red, colors.blue);
+    }
+}
@@ -37,11 +37,10 @@ import com.qualcomm.robotcore.hardware.NormalizedColorSensor;
 import com.qualcomm.robotcore.hardware.NormalizedRGBA;
 import com.qualcomm.robotcore.hardware.Servo;
 import com.qualcomm.robotcore.util.ElapsedTime;
+import com.qualcomm.robotcore.util.Range;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 
-import static android.os.SystemClock.sleep;
-
 /**
  * This is NOT an opmode.
  *
@@ -63,6 +62,9 @@ public class BT_Jewels {
     public Servo jewelArm = null;
     public Servo jewelFinger = null;
     public NormalizedColorSensor colorSensor = null;
+    public BT_JewelClassifier classifier = null;
+    // Moves the arm and the finger, shared by BT_Hardware.
+    BT_ServoMotion servos = new BT_ServoMotion();
 
     public static final double JEWEL_ARM_START = 0;
     public static final double JEWEL_FINGER_START = 1.0;
@@ -71,12 +73,18 @@ public class BT_Jewels {
     public static final double JEWEL_FINGER_RIGHT = 1.0;
     public static final double JEWEL_FINGER_LEFT = 0;
     public static final double ARM_UP_INTERVAL = 0.1;
+    // Servo speeds, in position per second. Down is the old 0.08 step every 100 ms.
+    public static final double ARM_DOWN_SPEED = 0.8;
+    public static final double ARM_UP_SPEED = 2;
+    public static final double FINGER_SPEED = 2.5;
 
-    private ElapsedTime runtimeJ = new ElapsedTime();
+    private ElapsedTime runtimeJ = new BT_Timer();
     private OpMode callerOpmode;
 
     static final double WAIT_FOR_COLOR = 3000;
     static final long WAIT_INTERVAL = 70;
+    // Time for the arm to settle after armDown before it reaches further for the jewel.
+    static final long ARM_SETTLE_MS = 250;
 
     /* local OpMode members. */
     HardwareMap hwMap = null;
@@ -96,32 +104,34 @@ public class BT_Jewels {
         jewelArm = hwMap.get(Servo.class, "jewelArm");
         jewelFinger = hwMap.get(Servo.class, "jewelFinger");
         colorSensor = hwMap.get(NormalizedColorSensor.class, "colorSensor");
+        classifier = new BT_JewelClassifier(colorSensor);
 
-        jewelArm.setPosition(JEWEL_ARM_START);
-        jewelFinger.setPosition(JEWEL_FINGER_START);
+        servos.jumpTo(jewelArm, JEWEL_ARM_START);
+        servos.jumpTo(jewelFinger, JEWEL_FINGER_START);
     }
 
-    public void armDown(){
-        jewelFinger.setPosition(JEWEL_FINGER_MID);
-        for (double pos = JEWEL_ARM_START; pos<=ARM_DOWN_POS; pos+=0.08 ){
-            jewelArm.setPosition(pos);
-            ((LinearOpMode)callerOpmode).sleep(100);
-        }
-        jewelArm.setPosition(ARM_DOWN_POS);
+    /**
+     * Starts lowering the arm, it does not wait for it.
+     */
+    public BT_ServoMotion.Motion armDown(){
+        servos.jumpTo(jewelFinger, JEWEL_FINGER_MID);
+        return servos.moveTo(jewelArm, ARM_DOWN_POS, ARM_DOWN_SPEED);
     }
 
-    public void armUp(){
-        jewelArm.setPosition(JEWEL_ARM_START);
-        sleep(350);
-        jewelFinger.setPosition(JEWEL_FINGER_START);
+    /**
+     * Starts raising the arm, the finger goes back once the arm is up. It does not wait for them.
+     */
+    public BT_ServoMotion.Motion armUp(){
+        return servos.moveTo(jewelArm, JEWEL_ARM_START, ARM_UP_SPEED)
+                .then(jewelFinger, JEWEL_FINGER_START, FINGER_SPEED);
     }
 
-    public void fingerRight(){
-        jewelFinger.setPosition(JEWEL_FINGER_RIGHT);
+    public BT_ServoMotion.Motion fingerRight(){
+        return servos.moveTo(jewelFinger, JEWEL_FINGER_RIGHT, FINGER_SPEED);
     }
 
-    public void fingerLeft(){
-        jewelFinger.setPosition(JEWEL_FINGER_LEFT);
+    public BT_ServoMotion.Motion fingerLeft(){
+        return servos.moveTo(jewelFinger, JEWEL_FINGER_LEFT, FINGER_SPEED);
     }
 
     public JewelColor getJewelColor(){
@@ -143,30 +153,73 @@ public class BT_Jewels {
         return jewelColor;
     }
 
+    /**
+     * Knocks off the jewel that is not targetColor. The classifier is started over once the arm is
+     * down and settled for ARM_SETTLE_MS, and the finger moves on its first confident decision after.
+     */
     public void moveJewel(JewelColor targetColor){
-        if(((LinearOpMode)callerOpmode).opModeIsActive()) {
-            JewelColor jewelColor;
-            armDown();
-            ((LinearOpMode)callerOpmode).sleep(250);
-            jewelColor = getJewelColor();
-            while ((jewelColor == JewelColor.UNKNOWN) && (runtimeJ.milliseconds() < WAIT_FOR_COLOR)
-                    &&(((LinearOpMode) callerOpmode).opModeIsActive())) {
-                ((LinearOpMode) callerOpmode).sleep(WAIT_INTERVAL);
-                jewelColor = getJewelColor();
-                jewelArm.setPosition(jewelArm.getPosition() + ARM_UP_INTERVAL);
-            }
-            if (jewelColor != JewelColor.UNKNOWN) {
-                BT_Status.addLine("color: " + jewelColor);
-                if (jewelColor.equals(targetColor)) {
-                    fingerRight();
-                    BT_Status.addLine("dir : right ");
-                } else {
-                    fingerLeft();
-                    BT_Status.addLine("dir : left ");
+        LinearOpMode opMode = (LinearOpMode) callerOpmode;
+        if(opMode.opModeIsActive()) {
+            classifier.start();
+            try {
+                BT_ServoMotion.Motion down = armDown();
+                runtimeJ.reset();
+                // When the arm is down and settled, -1 until it is down.
+                double settledMs = -1;
+                boolean reading = false;
+                double nextStepMs = -1;
+                JewelColor jewelColor = JewelColor.UNKNOWN;
+                while ((jewelColor == JewelColor.UNKNOWN) && (runtimeJ.milliseconds() < WAIT_FOR_COLOR)
+                        && opMode.opModeIsActive()) {
+                    BT_Clock.sleep(BT_JewelClassifier.SAMPLE_INTERVAL_MS);
+                    servos.update();
+                    if (settledMs < 0 && down.isDone()) {
+                        settledMs = runtimeJ.milliseconds() + ARM_SETTLE_MS;
+                        nextStepMs = settledMs + WAIT_INTERVAL;
+                    }
+                    if (!reading) {
+                        if (settledMs < 0 || runtimeJ.milliseconds() < settledMs) {
+                            continue;
+                        }
+                        // Only reads next to the settled jewel count.
+                        classifier.reset();
+                        reading = true;
+                    }
+                    jewelColor = classifier.getDecision();
+                    // Reaches further while the jewel is not seen.
+                    if (jewelColor == JewelColor.UNKNOWN && runtimeJ.milliseconds() >= nextStepMs) {
+                        double reach = servos.getPosition(jewelArm) + ARM_UP_INTERVAL;
+                        servos.jumpTo(jewelArm, Range.clip(reach, 0, 1));
+                        nextStepMs += WAIT_INTERVAL;
+                    }
+                }
+                if (jewelColor != JewelColor.UNKNOWN) {
+                    BT_Status.addLine("color: " + jewelColor);
+                    BT_ServoMotion.Motion finger;
+                    if (jewelColor.equals(targetColor)) {
+                        finger = fingerRight();
+                        BT_Status.addLine("dir : right ");
+                    } else {
+                        finger = fingerLeft();
+                        BT_Status.addLine("dir : left ");
+                    }
+                    waitFor(finger);
                 }
+                waitFor(armUp());
             }
-            ((LinearOpMode) callerOpmode).sleep(400);
-            armUp();
+            finally {
+                classifier.stop();
+            }
+        }
+    }
+
+    /**
+     * Waits for the move, moving the servos from this thread too in case nothing else does.
+     */
+    private void waitFor(BT_ServoMotion.Motion motion) {
+        while (!motion.isDone() && ((LinearOpMode) callerOpmode).opModeIsActive()) {
+            servos.update();
+            BT_Clock.sleep(BT_ServoMotion.UPDATE_INTERVAL_MS);
         }
     }
 }
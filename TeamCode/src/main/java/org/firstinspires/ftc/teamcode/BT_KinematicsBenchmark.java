@@ -0,0 +1,88 @@
+package org.firstinspires.ftc.teamcode;
+
+import android.os.Debug;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+/**
+ * Micro benchmark for the mecanum kinematics, run on the robot controller phone.
+ * Compares {@link BT_MecanumDrive#motionToWheels(BT_MecanumDrive.Motion)} with the
+ * allocation free {@link BT_MecanumDrive#motionToWheels(double, double, double, BT_MecanumDrive.Wheels)}
+ * and with it on the {@link BT_FastMath} tables, and shows the time and the number of objects
+ * allocated per call.
+ */
+@TeleOp(name="KinematicsBenchmark", group="Test")
+@Disabled
+public class BT_KinematicsBenchmark extends LinearOpMode {
+    static final int WARMUP_CALLS = 10000;
+    static final int CALLS = 100000;
+
+    // Keeps the results alive so the calls are not optimized away.
+    private double sink = 0;
+
+    @Override
+    public void runOpMode() {
+        telemetry.addData("Status", "Press PLAY to run the benchmark");
+        telemetry.update();
+        waitForStart();
+
+        BT_MecanumDrive.Motion motion = new BT_MecanumDrive.Motion(0.7, 0.3, 0.1);
+        BT_MecanumDrive.Wheels wheels = new BT_MecanumDrive.Wheels();
+
+        // Warm up both paths before measuring.
+        runLegacy(motion, WARMUP_CALLS);
+        runAllocationFree(motion, wheels, WARMUP_CALLS, false);
+        runAllocationFree(motion, wheels, WARMUP_CALLS, true);
+
+        Debug.startAllocCounting();
+
+        Debug.resetThreadAllocCount();
+        long start = System.nanoTime();
+        runLegacy(motion, CALLS);
+        long legacyNs = System.nanoTime() - start;
+        int legacyAllocs = Debug.getThreadAllocCount();
+
+        Debug.resetThreadAllocCount();
+        start = System.nanoTime();
+        runAllocationFree(motion, wheels, CALLS, false);
+        long allocationFreeNs = System.nanoTime() - start;
+        int allocationFreeAllocs = Debug.getThreadAllocCount();
+
+        Debug.resetThreadAllocCount();
+        start = System.nanoTime();
+        runAllocationFree(motion, wheels, CALLS, true);
+        long fastMathNs = System.nanoTime() - start;
+        int fastMathAllocs = Debug.getThreadAllocCount();
+
+        Debug.stopAllocCounting();
+
+        telemetry.addData("legacy", "%.1f ns/call, %.2f allocs/call",
+                (double) legacyNs / CALLS, (double) legacyAllocs / CALLS);
+        telemetry.addData("allocation free", "%.1f ns/call, %.2f allocs/call",
+                (double) allocationFreeNs / CALLS, (double) allocationFreeAllocs / CALLS);
+        telemetry.addData("fast math", "%.1f ns/call, %.2f allocs/call",
+                (double) fastMathNs / CALLS, (double) fastMathAllocs / CALLS);
+        telemetry.addData("sink", sink);
+        telemetry.update();
+
+        while (opModeIsActive()) {
+            idle();
+        }
+    }
+
+    private void runLegacy(BT_MecanumDrive.Motion motion, int calls) {
+        for (int i = 0; i < calls; i++) {
+            sink += BT_MecanumDrive.motionToWheels(motion).frontLeft;
+        }
+    }
+
+    private void runAllocationFree(BT_MecanumDrive.Motion motion, BT_MecanumDrive.Wheels wheels, int calls,
+                                   boolean fastMath) {
+        for (int i = 0; i < calls; i++) {
+            BT_MecanumDrive.motionToWheels(motion.vD, motion.thetaD, motion.vTheta, wheels, fastMath);
+            sink += wheels.frontLeft;
+        }
+    }
+}
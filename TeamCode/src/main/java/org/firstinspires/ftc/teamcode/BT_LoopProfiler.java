@@ -0,0 +1,128 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Times the sections of an opmode loop into {@link BT_Histogram}s. Call startLoop at the top of the
+ * loop, mark(section) after every section and endLoop at the bottom. Timing never allocates, only the
+ * reports do. Times come from {@link BT_Clock}, so the simulation reports simulated time.
+ */
+public class BT_LoopProfiler {
+    static final String TAG = "BT_LoopProfiler";
+    // Longest time kept in the histograms, slower loops are counted as this.
+    static final long HIGHEST_NS = 1000000000;
+    static final String SUMMARY_FORMAT = "p50 %.2f p99 %.2f max %.2f ms";
+
+    // java.util.logging goes to logcat on the phone and to the console on a plain JVM.
+    private static final Logger LOG = Logger.getLogger(TAG);
+
+    private final String[] names;
+    private final BT_Histogram[] sections;
+    // Start of loop to endLoop.
+    private final BT_Histogram loops = new BT_Histogram(HIGHEST_NS);
+    // Start of loop to the start of the next one, with the time between the loops.
+    private final BT_Histogram periods = new BT_Histogram(HIGHEST_NS);
+    private long firstStartNs = -1;
+    private long loopStartNs = 0;
+    private long markNs = 0;
+
+    /**
+     * @param names The names of the sections, in the order of their numbers.
+     */
+    public BT_LoopProfiler(String... names) {
+        this.names = names;
+        sections = new BT_Histogram[names.length];
+        for (int i = 0; i < names.length; i++) {
+            sections[i] = new BT_Histogram(HIGHEST_NS);
+        }
+    }
+
+    public void startLoop() {
+        long now = BT_Clock.nanoTime();
+        if (firstStartNs < 0) {
+            firstStartNs = now;
+        }
+        else {
+            periods.record(now - loopStartNs);
+        }
+        loopStartNs = now;
+        markNs = now;
+    }
+
+    /**
+     * Ends the given section, which ran since the last mark or the start of the loop.
+     */
+    public void mark(int section) {
+        long now = BT_Clock.nanoTime();
+        sections[section].record(now - markNs);
+        markNs = now;
+    }
+
+    public void endLoop() {
+        loops.record(BT_Clock.nanoTime() - loopStartNs);
+    }
+
+    /**
+     * @return The loops per second since the first loop.
+     */
+    public double getLoopHz() {
+        long elapsedNs = loopStartNs - firstStartNs;
+        return elapsedNs <= 0 ? 0 : periods.getCount() * 1e9 / elapsedNs;
+    }
+
+    public BT_Histogram getLoopTimes() {
+        return loops;
+    }
+
+    public void reset() {
+        for (BT_Histogram section : sections) {
+            section.reset();
+        }
+        loops.reset();
+        periods.reset();
+        firstStartNs = -1;
+    }
+
+    /**
+     * Adds the loop time, loop period and section times to the telemetry.
+     */
+    public void report(Telemetry telemetry) {
+        telemetry.addData("loop", SUMMARY_FORMAT + ", %.0f Hz", loops.getPercentileNs(50) / 1e6,
+                loops.getPercentileNs(99) / 1e6, loops.getMaxNs() / 1e6, getLoopHz());
+        report(telemetry, "period", periods);
+        for (int i = 0; i < sections.length; i++) {
+            report(telemetry, names[i], sections[i]);
+        }
+    }
+
+    /**
+     * Writes the whole report to the log, call it at stop.
+     */
+    public void dump() {
+        LOG.info(String.format(Locale.US, "%d loops, %.1f Hz", loops.getCount(), getLoopHz()));
+        LOG.info("loop " + summary(loops));
+        LOG.info("period " + summary(periods));
+        for (int i = 0; i < sections.length; i++) {
+            LOG.info(names[i] + " " + summary(sections[i]));
+        }
+    }
+
+    /**
+     * Leaves the formatting to the telemetry, which may skip it.
+     */
+    private static void report(Telemetry telemetry, String caption, BT_Histogram histogram) {
+        telemetry.addData(caption, SUMMARY_FORMAT, histogram.getPercentileNs(50) / 1e6,
+                histogram.getPercentileNs(99) / 1e6, histogram.getMaxNs() / 1e6);
+    }
+
+    private static String summary(BT_Histogram histogram) {
+        return String.format(Locale.US, SUMMARY_FORMAT,
+                histogram.getPercentileNs(50) / 1e6, histogram.getPercentileNs(99) / 1e6,
+                histogram.getMaxNs() / 1e6);
+    }
+}
@@ -58,8 +58,6 @@ import java.util.List;
  *
  */
 public class BT_MecanumDrive {
-    public static double lastVD = 0;
-    public static final double DELTA_ACCELERATION = 0.13;
     public static final double TELEOP_DRIVE_SPEED = 0.8;
     public static final double SLOW_SPEED = 0.3;
     public static final double TURN_SPEED = 0.2;
@@ -70,16 +68,23 @@ public class BT_MecanumDrive {
     //invert joystick values to motion
     public static class Motion {
         // Robot speed [-1, 1].
-        public final double vD;
+        public double vD;
         // Robot angle while moving [0, 2pi].
-        public final double thetaD;
+        public double thetaD;
         // Speed for changing direction [-1, 1].
-        public final double vTheta;
+        public double vTheta;
 
         /**
          * Sets the motion to the given values.
          */
         public Motion(double vD, double thetaD, double vTheta) {
+            set(vD, thetaD, vTheta);
+        }
+
+        /**
+         * Sets the motion to the given values, for a motion that is written again every loop.
+         */
+        public void set(double vD, double thetaD, double vTheta) {
             this.vD = vD;
             this.thetaD = thetaD;
             this.vTheta = vTheta;
@@ -87,7 +92,8 @@ public class BT_MecanumDrive {
     }
 
     /**
-     * Gets the motion vector from the joystick values.
+     * Gets the motion vector from the joystick values, deadbanded by {@link BT_GamepadInput}.
+     * It keeps no state, teleopDrive limits the acceleration after it with slewLimit.
      * @param leftStickX The left joystick X.
      * @param leftStickY The left joystick Y.
      * @param rightStickX The right joystick X.
@@ -99,38 +105,32 @@ public class BT_MecanumDrive {
                                                      double rightStickX,
                                                      double rightStickY, double rightTrigger,
                                           double curretAngle) {
-        final double JOYSTICK_THRESHOLD = 0.2;
-        boolean glyphIn = rightTrigger > 0.5;
+        return joystickToMotion(leftStickX, leftStickY, rightStickX, rightStickY, rightTrigger, curretAngle, false);
+    }
+
+    /**
+     * Same as joystickToMotion, with the {@link BT_FastMath} atan2 if fastMath is set.
+     */
+    public static Motion joystickToMotion(double leftStickX, double leftStickY, double rightStickX,
+                                          double rightStickY, double rightTrigger, double curretAngle,
+                                          boolean fastMath) {
+        boolean glyphIn = rightTrigger > BT_GamepadInput.TRIGGER_THRESHOLD;
         double leftX = leftStickX;
         double leftY = -leftStickY;
         double rightX = rightStickX;
-        if (Math.abs(leftX) < JOYSTICK_THRESHOLD){
-            leftX=0;
-        }
-        if (Math.abs(leftY) < JOYSTICK_THRESHOLD){
-            leftY=0;
-        }
-        if (Math.abs(rightX) < JOYSTICK_THRESHOLD){
-            rightX=0;
-        }
-        BT_Status.addLine("leftX: " + leftX);
-        BT_Status.addLine("leftY: " + leftY);
-        BT_Status.addLine("rightX: " + rightX);
+        BT_Status.addValue("leftX", leftX);
+        BT_Status.addValue("leftY", leftY);
+        BT_Status.addValue("rightX", rightX);
 
-        double vD = Math.min(Math.sqrt(Math.pow(leftX, 2) +
-                        Math.pow(leftY, 2)), 1);
-        if ((vD > lastVD + DELTA_ACCELERATION) && (lastVD + DELTA_ACCELERATION < 0.6)) {
-            vD = lastVD + DELTA_ACCELERATION ;
-        }
-        lastVD = vD;
+        double vD = Math.min(Math.sqrt(leftX * leftX + leftY * leftY), 1);
         vD = vD * (glyphIn ? SLOW_SPEED : TELEOP_DRIVE_SPEED);
-        double thetaD = Math.atan2(leftX,leftY);
+        double thetaD = fastMath ? BT_FastMath.atan2(leftX, leftY) : Math.atan2(leftX,leftY);
         double radAngle = curretAngle*Math.PI/180;
         //driving by driver's view
         thetaD += radAngle;
         while (thetaD > Math.PI)  thetaD -=  Math.PI * 2;
         while (thetaD <= - Math.PI) thetaD +=  Math.PI * 2;
-        BT_Status.addLine("thetaD 2: "+thetaD);
+        BT_Status.addValue("thetaD 2", thetaD);
         double vTheta = Math.abs(rightX) < 0.8 ? rightX*TURN_SPEED : rightX;
 
         return new Motion(vD, thetaD, vTheta);
@@ -155,6 +155,30 @@ public class BT_MecanumDrive {
             this.backLeft = powers.get(2);
             this.backRight = powers.get(3);
         }
+        /**
+         * Creates an empty wheels buffer, to be filled by {@link #setPowers}.
+         */
+        public Wheels() {
+        }
+        /**
+         * Sets the wheels to the given values in place, without boxing.
+         */
+        public void setPowers(double frontLeft, double frontRight,
+                              double backLeft, double backRight) {
+            double maxMag = Math.max(Math.max(Math.abs(frontLeft), Math.abs(frontRight)),
+                    Math.max(Math.abs(backLeft), Math.abs(backRight)));
+            // All zero powers would divide by zero, so leave them as they are.
+            if (maxMag > 0) {
+                frontLeft /= maxMag;
+                frontRight /= maxMag;
+                backLeft /= maxMag;
+                backRight /= maxMag;
+            }
+            this.frontLeft = frontLeft;
+            this.frontRight = frontRight;
+            this.backLeft = backLeft;
+            this.backRight = backRight;
+        }
         /**
          * Scales the wheel powers by the given factor.
          * @param scalar The wheel power scaling factor.
@@ -177,15 +201,41 @@ public class BT_MecanumDrive {
         double thetaD = motion.thetaD;
         double vTheta = motion.vTheta;
 
-        double frontLeft = vD * Math.sin(thetaD + Math.PI / 4) + vTheta;
-        double frontRight  = vD * Math.cos(thetaD + Math.PI / 4) - vTheta;
-        double backLeft = vD * Math.cos(thetaD + Math.PI / 4) + vTheta;
-        double backRight = vD * Math.sin(thetaD + Math.PI / 4) - vTheta;
+        double sin = Math.sin(thetaD + Math.PI / 4);
+        double cos = Math.cos(thetaD + Math.PI / 4);
+
+        double frontLeft = vD * sin + vTheta;
+        double frontRight  = vD * cos - vTheta;
+        double backLeft = vD * cos + vTheta;
+        double backRight = vD * sin - vTheta;
         Wheels wheels = new Wheels(frontLeft, frontRight, backLeft, backRight);
         wheels.scaleWheelPower(vD>0?Math.abs(vD):Math.abs(vTheta));
         return wheels;
     }
 
+    /**
+     * Gets the wheel powers corresponding to desired motion without allocating.
+     * @param vD Robot speed [-1, 1].
+     * @param thetaD Robot angle while moving.
+     * @param vTheta Speed for changing direction [-1, 1].
+     * @param wheels The wheels buffer to write the clamped powers into. [-1, 1]
+     */
+    public static void motionToWheels(double vD, double thetaD, double vTheta, Wheels wheels) {
+        motionToWheels(vD, thetaD, vTheta, wheels, false);
+    }
+
+    /**
+     * Same as motionToWheels, with the {@link BT_FastMath} sin and cos if fastMath is set.
+     */
+    public static void motionToWheels(double vD, double thetaD, double vTheta, Wheels wheels, boolean fastMath) {
+        double sin = fastMath ? BT_FastMath.sin(thetaD + Math.PI / 4) : Math.sin(thetaD + Math.PI / 4);
+        double cos = fastMath ? BT_FastMath.cos(thetaD + Math.PI / 4) : Math.cos(thetaD + Math.PI / 4);
+
+        wheels.setPowers(vD * sin + vTheta, vD * cos - vTheta,
+                vD * cos + vTheta, vD * sin - vTheta);
+        wheels.scaleWheelPower(vD>0?Math.abs(vD):Math.abs(vTheta));
+    }
+
     /**
      * Clamps the motor powers while maintaining power ratios.
      * @param powers The motor powers to clamp.
@@ -206,6 +256,26 @@ public class BT_MecanumDrive {
     public DcMotor rearLeftDrive = null;
     public DcMotor rearRightDrive = null;
     public BT_Gyro gyro = new BT_Gyro();
+    // Pose on the field, for driveTo. Only tracked while the opmode started it.
+    public final BT_Odometry odometry = new BT_Odometry();
+    // Wheel velocities and slip, updated by the teleop and profile drive loops.
+    public final BT_WheelVelocity wheelVelocity = new BT_WheelVelocity();
+    // Per loop sensor snapshot, shared by BT_Hardware.
+    BT_SensorCache sensors = new BT_SensorCache();
+    // Write buffer for the teleop motor powers, shared by BT_Hardware.
+    BT_CommandBuffer commands = new BT_CommandBuffer();
+
+    // Use the allocation free kinematics in teleopDrive, false falls back to motionToWheels(Motion).
+    public boolean allocationFreeKinematics = true;
+    // Use the BT_FastMath tables in the teleop drive math, off by at most its error bounds.
+    public boolean fastMath = false;
+    // Reset the encoders before every move, as before the moves were relative to their start.
+    // Only kept to count the hardware calls it costs in the simulation, see BT_SimRunner in
+    // TeamCodeSim.
+    public boolean resetEncodersPerLeg = false;
+    private final Wheels wheelsBuffer = new Wheels();
+    // Written by slewLimit every loop.
+    private final Motion slewedMotion = new Motion(0, 0, 0);
 
     static final double COUNTS_PER_MOTOR_REV = 28 ;
     static final double DRIVE_GEAR_REDUCTION = 19.2 ;     // This is < 1.0 if geared UP
@@ -214,13 +284,77 @@ public class BT_MecanumDrive {
             (WHEEL_DIAMETER_CM * 3.1415);
 
     static final double AUTO_DRIVE_SPEED = 0.6;
+    // Motion profile of encoderDrive, in wheel encoder ticks. The speed of a move is the part of MAX_TPS.
+    static final double MAX_TPS = 2700;
+    static final double PROFILE_MAX_ACCELERATION = 3000;
+    static final double PROFILE_JERK_TIME_S = 0.15;
+    // Wheel speed lag to a new power, for the acceleration feedforward.
+    static final double MOTOR_TAU_S = 0.05;
+    // Power per tick behind the plan.
+    static final double PROFILE_KP = 0.002;
+    static final int PROFILE_TOLERANCE_TICKS = 15;
     static final double AUTO_TURN_SPEED = 0.25;
     static final double THRESHOLD = 1.50;
     static final double P_TURN_COEFF = 0.1;
+    static final double SETTLE_TIME_MS = 300;
+    // Teleop acceleration limits, in speed per second, stopping is not limited.
+    static final double FORWARD_ACCELERATION = 4;
+    static final double STRAFE_ACCELERATION = 3;
+    static final double TURN_ACCELERATION = 6;
+    // Part of the drive speed kept when a wheel slips in teleop, the slew limiters ramp up again.
+    static final double SLIP_BACKOFF = 0.7;
+    // Part of the profile feedforward kept while a wheel slips in a move.
+    static final double SLIP_FEEDFORWARD_SCALE = 0.7;
+    // Heading controller of turn, turnAction and teleopTurn, tuned in the simulation.
+    static final double TURN_KP = 0.02;
+    static final double TURN_KI = 0.01;
+    static final double TURN_KD = 0.002;
+    static final double TURN_KF = 0.08;
+    static final double TURN_MAX_POWER = 0.5;
+    static final double TURN_MAX_INTEGRAL = 0.1;
+    static final double TURN_INTEGRAL_ZONE = 10;
+    static final double TURN_RATE_TOLERANCE = 10;
+    static final double TURN_RATE_TAU_S = 0.03;
+    static final double TURN_SETTLE_MS = 60;
+
+    public final BT_PIDF turnController = newTurnController();
+    // Target of the teleop turn in progress, NaN when not turning.
+    private double teleopTurnTarget = Double.NaN;
+    // Robot relative teleop speeds, limited per axis.
+    public final BT_SlewLimiter strafeSlew = new BT_SlewLimiter(STRAFE_ACCELERATION, Double.POSITIVE_INFINITY);
+    public final BT_SlewLimiter forwardSlew = new BT_SlewLimiter(FORWARD_ACCELERATION, Double.POSITIVE_INFINITY);
+    public final BT_SlewLimiter turnSlew = new BT_SlewLimiter(TURN_ACCELERATION, Double.POSITIVE_INFINITY);
+    private boolean wasSlipping = false;
 
-    ElapsedTime runtime = new ElapsedTime();
+    ElapsedTime runtime = new BT_Timer();
     private OpMode callerOpmode;
 
+    // Encoder targets of the current encoderDrive.
+    private int frontLeftTarget = 0;
+    private int frontRightTarget = 0;
+    private int rearLeftTarget = 0;
+    private int rearRightTarget = 0;
+    public BT_MotionProfile.Shape profileShape = BT_MotionProfile.Shape.S_CURVE;
+    // The profiles of the moves, planned at init, see planRoute.
+    public final BT_TrajectoryCache trajectories = new BT_TrajectoryCache(PROFILE_MAX_ACCELERATION,
+            PROFILE_JERK_TIME_S);
+    // The current encoderDrive: its profile, read scaled to the move, and per wheel the part of the move
+    // and the start position.
+    private BT_ProfileTable profile = null;
+    private double profileScale = 1;
+    private final ElapsedTime profileTime = new BT_Timer();
+    // Profile time the plan was held while a wheel slipped, and the time of the last update.
+    private double profileHeldS = 0;
+    private double lastProfileS = 0;
+    private DcMotor[] driveMotors;
+    private final double[] wheelFactors = new double[4];
+    private final BT_Odometry.Pose pose = new BT_Odometry.Pose();
+    // Set while planRoute runs a route, the moves then only move planPose.
+    private boolean planning = false;
+    private final BT_Odometry.Pose planPose = new BT_Odometry.Pose();
+    private final int[] wheelStarts = new int[4];
+    private final int[] wheelPositions = new int[4];
+
     /* local OpMode members. */
     HardwareMap hwMap = null;
 
@@ -239,6 +373,7 @@ public class BT_MecanumDrive {
         frontRightDrive = hwMap.get(DcMotor.class, "frontRightDrive");
         rearLeftDrive = hwMap.get(DcMotor.class, "rearLeftDrive");
         rearRightDrive = hwMap.get(DcMotor.class, "rearRightDrive");
+        driveMotors = new DcMotor[] {frontLeftDrive, frontRightDrive, rearLeftDrive, rearRightDrive};
 
         //set motors dir
         frontLeftDrive.setDirection(DcMotor.Direction.FORWARD); // Set to REVERSE if using AndyMark motors
@@ -252,15 +387,8 @@ public class BT_MecanumDrive {
         rearLeftDrive.setPower(0);
         rearRightDrive.setPower(0);
 
-        frontLeftDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        frontRightDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        rearLeftDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        rearRightDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-
-        frontLeftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        frontRightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        rearLeftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        rearRightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        // Through the command buffer, so it knows the modes and drops the ones already set.
+        resetEncoderModes();
 
         frontLeftDrive.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
         frontRightDrive.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
@@ -269,38 +397,254 @@ public class BT_MecanumDrive {
 
         //Initiate the gyro
         gyro.init(hwMap);
+        odometry.init(driveMotors, gyro);
+        odometry.setWheelVelocity(wheelVelocity);
     }
 
     public void move(double distCm , DriveDirection direction,  double timeoutS, Telemetry telemetry ){
-        frontLeftDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        frontRightDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        rearLeftDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        rearRightDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-
-        frontLeftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        frontRightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        rearLeftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        rearRightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-
+        if (resetEncodersPerLeg) {
+            resetEncoders();
+        }
         encoderDrive( AUTO_DRIVE_SPEED, distCm, direction , timeoutS, telemetry );
     }
     public void move(double distCm , DriveDirection direction,  double timeoutS, Telemetry telemetry,double driveSpeed ){
-        frontLeftDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        frontRightDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        rearLeftDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        rearRightDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        if (resetEncodersPerLeg) {
+            resetEncoders();
+        }
+        encoderDrive(driveSpeed, distCm, direction , timeoutS, telemetry );
+    }
 
-        frontLeftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        frontRightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        rearLeftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        rearRightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+    /**
+     * Non blocking version of move, to be run by {@link BT_Scheduler}.
+     */
+    public BT_Action moveAction(double distCm, DriveDirection direction, double timeoutMs, Telemetry telemetry) {
+        return moveAction(distCm, direction, timeoutMs, telemetry, AUTO_DRIVE_SPEED);
+    }
+    public BT_Action moveAction(final double distCm, final DriveDirection direction, final double timeoutMs,
+                                final Telemetry telemetry, final double driveSpeed) {
+        return new BT_Action() {
+            private final ElapsedTime runtime = new BT_Timer();
 
-        encoderDrive(driveSpeed, distCm, direction , timeoutS, telemetry );
+            @Override
+            public void start() {
+                if (resetEncodersPerLeg) {
+                    resetEncoders();
+                }
+                startEncoderDrive(driveSpeed, distCm, direction, telemetry);
+                runtime.reset();
+            }
+
+            @Override
+            public boolean update() {
+                return (runtime.milliseconds() >= timeoutMs) || updateEncoderDrive();
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                stopEncoderDrive();
+            }
+        };
+    }
+
+    /**
+     * Drives straight to the field position, see {@link BT_Odometry}, keeping the heading.
+     * Needs odometry.startTracking().
+     */
+    public void driveTo(double x, double y, double timeoutMs, Telemetry telemetry) {
+        driveTo(x, y, timeoutMs, telemetry, AUTO_DRIVE_SPEED);
+    }
+    public void driveTo(double x, double y, double timeoutMs, Telemetry telemetry, double driveSpeed) {
+        if (planning) {
+            trajectories.get(moveTicks(Math.hypot(x - planPose.x, y - planPose.y)), profileVelocity(driveSpeed),
+                    profileShape);
+            planPose.x = x;
+            planPose.y = y;
+            return;
+        }
+        ElapsedTime runtime = new BT_Timer();
+        startDriveTo(x, y, driveSpeed, telemetry);
+        runtime.reset();
+        while ((runtime.milliseconds() < timeoutMs) && (((LinearOpMode)callerOpmode).opModeIsActive()) &&
+                !updateEncoderDrive()) {
+            odometry.getPose(pose);
+            telemetry.addData("pose", "%.1f , %.1f , %.1f", pose.x, pose.y, pose.heading);
+            telemetry.addData("target", "%.1f , %.1f", x, y);
+            telemetry.update();
+        }
+        stopEncoderDrive();
+    }
+
+    /**
+     * Non blocking version of driveTo, to be run by {@link BT_Scheduler}.
+     */
+    public BT_Action driveToAction(final double x, final double y, final double timeoutMs,
+                                   final Telemetry telemetry, final double driveSpeed) {
+        return new BT_Action() {
+            private final ElapsedTime runtime = new BT_Timer();
+
+            @Override
+            public void start() {
+                startDriveTo(x, y, driveSpeed, telemetry);
+                runtime.reset();
+            }
+
+            @Override
+            public boolean update() {
+                return (runtime.milliseconds() >= timeoutMs) || updateEncoderDrive();
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                stopEncoderDrive();
+            }
+        };
+    }
+
+    /**
+     * Turns the field move from the current pose into a robot relative move and starts it.
+     */
+    void startDriveTo(double x, double y, double speed, Telemetry telemetry) {
+        odometry.getPose(pose);
+        double dx = x - pose.x;
+        double dy = y - pose.y;
+        double distCm = Math.hypot(dx, dy);
+        double rad = Math.toRadians(pose.heading);
+        double forward = dx * Math.cos(rad) + dy * Math.sin(rad);
+        double right = dx * Math.sin(rad) - dy * Math.cos(rad);
+        if (distCm > 0) {
+            forward /= distCm;
+            right /= distCm;
+        }
+        setWheelFactors(forward - right, forward + right, forward + right, forward - right);
+        startProfileDrive(speed, distCm, telemetry);
+    }
+
+    /**
+     * Drives through the field waypoints without stopping at them, see {@link BT_PathFollower}.
+     * Needs odometry.startTracking().
+     */
+    public void followPath(double timeoutMs, Telemetry telemetry, BT_PathFollower.Waypoint... points) {
+        ElapsedTime runtime = new BT_Timer();
+        BT_PathFollower follower = new BT_PathFollower(newTurnController(), points);
+        odometry.getPose(pose);
+        follower.start(pose);
+        runtime.reset();
+        while ((runtime.milliseconds() < timeoutMs) && (((LinearOpMode)callerOpmode).opModeIsActive())) {
+            odometry.getPose(pose);
+            if (follower.update(pose)) {
+                break;
+            }
+            setDrivePower(follower.getForward(), follower.getRight(), follower.getTurn());
+            telemetry.addData("pose", "%.1f , %.1f , %.1f", pose.x, pose.y, pose.heading);
+            telemetry.addData("path", "%.1f cm left", follower.getRemaining());
+            telemetry.update();
+        }
+        stopMotors();
+    }
+
+    /**
+     * Non blocking version of followPath, to be run by {@link BT_Scheduler}.
+     */
+    public BT_Action followPathAction(final double timeoutMs, final Telemetry telemetry,
+                                      final BT_PathFollower.Waypoint... points) {
+        return new BT_Action() {
+            private final ElapsedTime runtime = new BT_Timer();
+            private final BT_PathFollower follower = new BT_PathFollower(newTurnController(), points);
+            private final BT_Odometry.Pose pose = new BT_Odometry.Pose();
+
+            @Override
+            public void start() {
+                odometry.getPose(pose);
+                follower.start(pose);
+                runtime.reset();
+            }
+
+            @Override
+            public boolean update() {
+                odometry.getPose(pose);
+                if (runtime.milliseconds() >= timeoutMs || follower.update(pose)) {
+                    return true;
+                }
+                setDrivePower(follower.getForward(), follower.getRight(), follower.getTurn());
+                telemetry.addData("path", "%.1f cm left", follower.getRemaining());
+                return false;
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                stopMotors();
+            }
+        };
+    }
+
+    /**
+     * Drives and turns at the same time, with the wheel directions of startEncoderDrive and setTurnPower.
+     * Scaled down together if a wheel would go over full power.
+     */
+    private void setDrivePower(double forward, double right, double turn) {
+        double frontLeft = forward - right - turn;
+        double frontRight = forward + right + turn;
+        double rearLeft = forward + right - turn;
+        double rearRight = forward - right + turn;
+        double maxMag = Math.max(1, Math.max(Math.max(Math.abs(frontLeft), Math.abs(frontRight)),
+                Math.max(Math.abs(rearLeft), Math.abs(rearRight))));
+        frontLeftDrive.setPower(frontLeft / maxMag);
+        frontRightDrive.setPower(frontRight / maxMag);
+        rearLeftDrive.setPower(rearLeft / maxMag);
+        rearRightDrive.setPower(rearRight / maxMag);
+    }
+
+    public void resetEncoders() {
+        // The odometry waits for the reset, so it does not take it for a move.
+        synchronized (odometry) {
+            resetEncoderModes();
+            odometry.encodersReset();
+        }
+        wheelVelocity.reset();
+    }
+
+    private void resetEncoderModes() {
+        for (DcMotor motor : driveMotors) {
+            commands.setMode(motor, DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+            commands.setMode(motor, DcMotor.RunMode.RUN_USING_ENCODER);
+        }
     }
 
     public void turn (double degrees, double timeoutMs, Telemetry telemetry,boolean isAuto) {
-        double rightSpeed, leftSpeed;
-        double steer;
+        if (planning) {
+            planPose.heading = degrees;
+            return;
+        }
+        turnController.reset();
+        runtime.reset();
+        boolean isActive = true;
+
+        // keep looping while we are still active, and not settled on heading.
+        while ((runtime.milliseconds() < timeoutMs) && isActive) {
+            if (isAuto){
+                isActive = ((LinearOpMode)callerOpmode).opModeIsActive();
+            }
+            double angle = sensors.getAngle(gyro);
+            double error = getError(degrees, angle);
+            double power = turnController.update(error, angle);
+            if (turnController.isSettled()) {
+                break;
+            }
+            setTurnPower(power);
+            // Update telemetry & Allow time for other processes to run.
+            telemetry.addData("Error", error);
+            telemetry.addData("angle", angle);
+            telemetry.update();
+        }
+        stopMotors();
+    }
+
+    /**
+     * The proportional turn that turn replaced: it stops on heading, waits SETTLE_TIME_MS and
+     * corrects again. Kept to compare against turn in the simulation, see BT_SimRunner in
+     * TeamCodeSim.
+     */
+    public void turnProportional(double degrees, double timeoutMs, Telemetry telemetry, boolean isAuto) {
         double error = getError(degrees);
         double t;
         runtime.reset();
@@ -314,84 +658,141 @@ public class BT_MecanumDrive {
                     isActive = ((LinearOpMode)callerOpmode).opModeIsActive();
                 }
                 // Update telemetry & Allow time for other processes to run.
-                steer = getSteer(error, P_TURN_COEFF);
-                rightSpeed = AUTO_TURN_SPEED * steer;
-                if(rightSpeed > 0 && rightSpeed < 0.1)
-                    rightSpeed = 0.1;
-                else if(rightSpeed < 0 && rightSpeed > -0.1)
-                    rightSpeed = -0.1;
-                leftSpeed = -rightSpeed;
-                frontLeftDrive.setPower(leftSpeed);
-                frontRightDrive.setPower(rightSpeed);
-                rearLeftDrive.setPower(leftSpeed);
-                rearRightDrive.setPower( rightSpeed);
+                setProportionalTurnPower(error);
 
                 error = getError(degrees);
                 telemetry.addData("Error", error);
-                telemetry.addLine("angle : " + gyro.getAngle());
+                telemetry.addData("angle", gyro.getAngle());
                 telemetry.update();
             }
-            frontLeftDrive.setPower(0);
-            frontRightDrive.setPower(0);
-            rearLeftDrive.setPower(0);
-            rearRightDrive.setPower(0);
+            stopMotors();
 
             t = runtime.milliseconds();
-            while (runtime.milliseconds() < t + 300 && isActive){
+            while (runtime.milliseconds() < t + SETTLE_TIME_MS && isActive){
                 if (isAuto){
                     isActive = ((LinearOpMode)callerOpmode).opModeIsActive();
                 }
                 error = getError(degrees);
                 telemetry.addData("Error", error);
-                telemetry.addLine("angle : " + gyro.getAngle());
+                telemetry.addData("angle", gyro.getAngle());
                 telemetry.update();
             }
         }
+        stopMotors();
+    }
+
+    /**
+     * Non blocking version of turn, to be run by {@link BT_Scheduler}.
+     */
+    public BT_Action turnAction(final double degrees, final double timeoutMs, final Telemetry telemetry) {
+        return new BT_Action() {
+            private final ElapsedTime runtime = new BT_Timer();
+            private final BT_PIDF controller = newTurnController();
+
+            @Override
+            public void start() {
+                runtime.reset();
+                controller.reset();
+            }
+
+            @Override
+            public boolean update() {
+                double angle = sensors.getAngle(gyro);
+                double error = getError(degrees, angle);
+                telemetry.addData("Error", error);
+                double power = controller.update(error, angle);
+                if (runtime.milliseconds() >= timeoutMs || controller.isSettled()) {
+                    return true;
+                }
+                setTurnPower(power);
+                return false;
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                stopMotors();
+            }
+        };
+    }
+
+    private void setTurnPower(double power) {
+        frontLeftDrive.setPower(-power);
+        frontRightDrive.setPower(power);
+        rearLeftDrive.setPower(-power);
+        rearRightDrive.setPower(power);
+    }
+
+    private void setProportionalTurnPower(double error) {
+        double rightSpeed, leftSpeed;
+        double steer = getSteer(error, P_TURN_COEFF);
+        rightSpeed = AUTO_TURN_SPEED * steer;
+        if(rightSpeed > 0 && rightSpeed < 0.1)
+            rightSpeed = 0.1;
+        else if(rightSpeed < 0 && rightSpeed > -0.1)
+            rightSpeed = -0.1;
+        leftSpeed = -rightSpeed;
+        frontLeftDrive.setPower(leftSpeed);
+        frontRightDrive.setPower(rightSpeed);
+        rearLeftDrive.setPower(leftSpeed);
+        rearRightDrive.setPower( rightSpeed);
+    }
+
+    private void stopMotors() {
         frontLeftDrive.setPower(0);
         frontRightDrive.setPower(0);
         rearLeftDrive.setPower(0);
         rearRightDrive.setPower(0);
     }
+    /**
+     * One step of turning to the heading, for a teleop loop. The controller starts over when the target changes.
+     */
     public void teleopTurn (double degrees, Telemetry telemetry){
-        double rightSpeed, leftSpeed;
-        double steer;
-        double error = getError(degrees);
-        runtime.reset();
-        boolean isActive = true;
-
-        // keep looping while we are still active, and not on heading.
-        if ((Math.abs(error) > THRESHOLD) && isActive) {
-            // Update telemetry & Allow time for other processes to run.
-            steer = getSteer(error, P_TURN_COEFF);
-            rightSpeed = AUTO_TURN_SPEED * steer;
-            if(rightSpeed > 0 && rightSpeed < 0.1)
-                rightSpeed = 0.1;
-            else if(rightSpeed < 0 && rightSpeed > -0.1)
-                rightSpeed = -0.1;
-            leftSpeed = -rightSpeed;
-
-            frontLeftDrive.setPower(leftSpeed);
-            frontRightDrive.setPower(rightSpeed);
-            rearLeftDrive.setPower(leftSpeed);
-            rearRightDrive.setPower( rightSpeed);
-
-            error = getError(degrees);
-            telemetry.addData("Error", error);
-            telemetry.addLine("angle : " + gyro.getAngle());
-            telemetry.update();
+        if (degrees != teleopTurnTarget) {
+            turnController.reset();
+            teleopTurnTarget = degrees;
         }
-        else {
-            frontLeftDrive.setPower(0);
-            frontRightDrive.setPower(0);
-            rearLeftDrive.setPower(0);
-            rearRightDrive.setPower(0);
+        double angle = sensors.getAngle(gyro);
+        double error = getError(degrees, angle);
+        double power = turnController.update(error, angle);
+        if (turnController.isSettled()) {
+            power = 0;
         }
+        commands.setPower(frontLeftDrive, -power);
+        commands.setPower(frontRightDrive, power);
+        commands.setPower(rearLeftDrive, -power);
+        commands.setPower(rearRightDrive, power);
+        wheelVelocity.setExpected(-power * MAX_TPS, power * MAX_TPS, -power * MAX_TPS, power * MAX_TPS);
+        // The sticks start from standing when the turn is over.
+        strafeSlew.reset(0);
+        forwardSlew.reset(0);
+        turnSlew.reset(0);
+
+        telemetry.addData("Error", error);
+        telemetry.addData("angle", angle);
+    }
+
+    private BT_PIDF newTurnController() {
+        BT_PIDF controller = new BT_PIDF(TURN_KP, TURN_KI, TURN_KD, TURN_KF);
+        controller.maxOutput = TURN_MAX_POWER;
+        controller.maxIntegral = TURN_MAX_INTEGRAL;
+        controller.integralZone = TURN_INTEGRAL_ZONE;
+        controller.tolerance = THRESHOLD;
+        controller.rateTolerance = TURN_RATE_TOLERANCE;
+        controller.rateTauS = TURN_RATE_TAU_S;
+        controller.settleMs = TURN_SETTLE_MS;
+        controller.wrapRange = 360;
+        return controller;
     }
+
     public double getError(double targetAngle) {
+        return getError(targetAngle, sensors.getAngle(gyro));
+    }
+
+    double getError(double targetAngle, double angle) {
         double robotError;
 
         // calculate error in -179 to +180 range  (
-        robotError = targetAngle - gyro.getAngle();
+        robotError = targetAngle - angle;
         while (robotError > 180)  robotError -= 360;
         while (robotError <= -180) robotError += 360;
         return robotError;
@@ -401,18 +802,34 @@ public class BT_MecanumDrive {
         return Range.clip(error * PCoeff, -1, 1);
     }
 
-    public void teleopDrive(Gamepad gamepad, Telemetry telemetry) {
-        boolean turnCloseCrypto = gamepad.a;
-        boolean turnSideCrypto = gamepad.b || gamepad.x;
-        boolean forwDrive = gamepad.dpad_up;
-        boolean rightDrive = gamepad.dpad_right;
-        boolean leftDrive = gamepad.dpad_left;
-        boolean backDrive = gamepad.dpad_down;
-        boolean resetGyro = gamepad.left_bumper;
+    public void teleopDrive(BT_GamepadInput gamepad, Telemetry telemetry) {
+        boolean turnCloseCrypto = gamepad.isDown(BT_GamepadInput.Button.A);
+        boolean turnSideCrypto = gamepad.isDown(BT_GamepadInput.Button.B) || gamepad.isDown(BT_GamepadInput.Button.X);
+        boolean forwDrive = gamepad.isDown(BT_GamepadInput.Button.DPAD_UP);
+        boolean rightDrive = gamepad.isDown(BT_GamepadInput.Button.DPAD_RIGHT);
+        boolean leftDrive = gamepad.isDown(BT_GamepadInput.Button.DPAD_LEFT);
+        boolean backDrive = gamepad.isDown(BT_GamepadInput.Button.DPAD_DOWN);
+        // Zeroes the heading on a press, and initializes the IMU again in the background when held.
+        boolean resetGyro = gamepad.wasPressed(BT_GamepadInput.Button.LEFT_BUMPER);
+        boolean reinitGyro = gamepad.wasHeld(BT_GamepadInput.Button.LEFT_BUMPER);
+        wheelPositions[0] = sensors.getPosition(frontLeftDrive);
+        wheelPositions[1] = sensors.getPosition(frontRightDrive);
+        wheelPositions[2] = sensors.getPosition(rearLeftDrive);
+        wheelPositions[3] = sensors.getPosition(rearRightDrive);
+        wheelVelocity.update(wheelPositions);
+        // Traction control: back off below the speed a wheel broke loose at, the limiters ramp up again.
+        // Once per slip, the mask stays set for a few loops while the filters catch up.
+        boolean slipping = wheelVelocity.isSlipping();
+        if (slipping && !wasSlipping) {
+            strafeSlew.setValue(strafeSlew.getValue() * SLIP_BACKOFF);
+            forwardSlew.setValue(forwardSlew.getValue() * SLIP_BACKOFF);
+            turnSlew.setValue(turnSlew.getValue() * SLIP_BACKOFF);
+        }
+        wasSlipping = slipping;
         double robotAngle = 0;
         double cryptoAngle = 0;
-        if (gamepad.right_bumper ){
-            robotAngle = gyro.getAngle();
+        if (gamepad.isDown(BT_GamepadInput.Button.RIGHT_BUMPER)){
+            robotAngle = sensors.getAngle(gyro);
             if (BT_FieldSetup.allianceColor == "RED"){
                 cryptoAngle = -Math.PI / 2;
             }
@@ -420,8 +837,10 @@ public class BT_MecanumDrive {
                 cryptoAngle = Math.PI / 2;
             }
         }
-        Motion motion = joystickToMotion(gamepad.left_stick_x, gamepad.left_stick_y, gamepad.right_stick_x,
-                gamepad.right_stick_y, gamepad.right_trigger, robotAngle);
+        Motion motion = joystickToMotion(gamepad.getAxis(BT_GamepadInput.Axis.LEFT_STICK_X),
+                gamepad.getAxis(BT_GamepadInput.Axis.LEFT_STICK_Y), gamepad.getAxis(BT_GamepadInput.Axis.RIGHT_STICK_X),
+                gamepad.getAxis(BT_GamepadInput.Axis.RIGHT_STICK_Y), gamepad.getAxis(BT_GamepadInput.Axis.RIGHT_TRIGGER),
+                robotAngle, fastMath);
         if (rightDrive){
             motion = new Motion(0.3, Math.PI/2+cryptoAngle, 0);
         }
@@ -434,8 +853,16 @@ public class BT_MecanumDrive {
         else if(forwDrive) {
             motion = new Motion(0.3, 0+cryptoAngle, 0);
         }
+        motion = slewLimit(motion);
 
-        Wheels wheels = motionToWheels(motion);
+        Wheels wheels;
+        if (allocationFreeKinematics) {
+            wheels = wheelsBuffer;
+            motionToWheels(motion.vD, motion.thetaD, motion.vTheta, wheels, fastMath);
+        }
+        else {
+            wheels = motionToWheels(motion);
+        }
         if (turnCloseCrypto){
             teleopTurn(BT_FieldSetup.closeCryptobox, telemetry);
         }
@@ -443,110 +870,238 @@ public class BT_MecanumDrive {
             teleopTurn(BT_FieldSetup.sideCryptobox, telemetry);
         }
         else {
-            frontLeftDrive.setPower(wheels.frontLeft);
-            frontRightDrive.setPower(wheels.frontRight);
-            rearLeftDrive.setPower(wheels.backLeft);
-            rearRightDrive.setPower(wheels.backRight);
+            teleopTurnTarget = Double.NaN;
+            commands.setPower(frontLeftDrive, wheels.frontLeft);
+            commands.setPower(frontRightDrive, wheels.frontRight);
+            commands.setPower(rearLeftDrive, wheels.backLeft);
+            commands.setPower(rearRightDrive, wheels.backRight);
+            wheelVelocity.setExpected(wheels.frontLeft * MAX_TPS, wheels.frontRight * MAX_TPS,
+                    wheels.backLeft * MAX_TPS, wheels.backRight * MAX_TPS);
             telemetry.addLine("DRIVE");
-            telemetry.addLine(" front left: " + wheels.frontLeft + ", " + frontLeftDrive.getCurrentPosition());
-            telemetry.addLine(" front right : " + wheels.frontRight + ", " + frontRightDrive.getCurrentPosition());
-            telemetry.addLine(" rear left : " + wheels.backLeft + ", " + rearLeftDrive.getCurrentPosition());
-            telemetry.addLine(" rear right : " + wheels.backRight + ", " + rearRightDrive.getCurrentPosition());
-            telemetry.addLine(" angle : " + gyro.getAngle());
+            telemetry.addData(" front left", "%.2f, %d", wheels.frontLeft, sensors.getPosition(frontLeftDrive));
+            telemetry.addData(" front right", "%.2f, %d", wheels.frontRight, sensors.getPosition(frontRightDrive));
+            telemetry.addData(" rear left", "%.2f, %d", wheels.backLeft, sensors.getPosition(rearLeftDrive));
+            telemetry.addData(" rear right", "%.2f, %d", wheels.backRight, sensors.getPosition(rearRightDrive));
+            telemetry.addData(" angle", "%.1f", sensors.getAngle(gyro));
+            // Bit i set for every wheel i that slips: front left, front right, rear left, rear right.
+            telemetry.addData(" slip mask", "%d", wheelVelocity.getSlipMask());
         }
         if (resetGyro){
-            gyro.init(hwMap);
+            gyro.zeroHeading();
+        }
+        if (reinitGyro){
+            gyro.reinitAsync(hwMap);
         }
     }
 
+    /**
+     * Limits the acceleration of the motion on each robot axis, strafe, forward and turn, by the
+     * time since the last loop.
+     * @return The limited motion, written into the same Motion every call.
+     */
+    Motion slewLimit(Motion motion) {
+        double sin = fastMath ? BT_FastMath.sin(motion.thetaD) : Math.sin(motion.thetaD);
+        double cos = fastMath ? BT_FastMath.cos(motion.thetaD) : Math.cos(motion.thetaD);
+        double strafe = strafeSlew.calculate(motion.vD * sin);
+        double forward = forwardSlew.calculate(motion.vD * cos);
+        double turn = turnSlew.calculate(motion.vTheta);
+        double thetaD = fastMath ? BT_FastMath.atan2(strafe, forward) : Math.atan2(strafe, forward);
+        slewedMotion.set(Math.sqrt(strafe * strafe + forward * forward), thetaD, turn);
+        return slewedMotion;
+    }
+
     public void encoderDrive(double speed,
                              double distCm, DriveDirection direction,
                              double timeoutMs, Telemetry telemetry) {
-        int newFrontLeftTarget = frontLeftDrive.getCurrentPosition();
-        int newFrontRightTarget = frontRightDrive.getCurrentPosition();
-        int newRearLeftTarget = rearLeftDrive.getCurrentPosition();
-        int newRearRightTarget = rearRightDrive.getCurrentPosition();
-
-        ElapsedTime runtime =new ElapsedTime();
-        // Determine new target position, and pass to motor controller
-        int ticks = (int)(distCm / Math.cos(Math.PI/4) * COUNTS_PER_CM);
+        if (planning) {
+            planMove(speed, distCm, direction);
+            return;
+        }
+        ElapsedTime runtime =new BT_Timer();
+        startEncoderDrive(speed, distCm, direction, telemetry);
+
+        // reset the timeout time and start motion.
+        runtime.reset();
+
+        // keep looping while we are still active, there is time left, and the profile is not done
+        // with every wheel at its target.
+        while ((runtime.milliseconds() < timeoutMs) && (((LinearOpMode)callerOpmode).opModeIsActive()) &&
+                !updateEncoderDrive()) {
+            telemetry.addData("plan", "%.0f of %.0f ticks", profileScale * profile.getPosition(profileTime.seconds()),
+                    profileScale * profile.getPosition(profile.getDuration()));
+            telemetry.addData("front left: ", "%d , %d", frontLeftTarget, wheelPositions[0]);
+            telemetry.addData("front right: ", "%d , %d", frontRightTarget, wheelPositions[1]);
+            telemetry.addData("rear left: ", "%d , %d", rearLeftTarget, wheelPositions[2]);
+            telemetry.addData("rear right: ", "%d , %d", rearRightTarget, wheelPositions[3]);
+            telemetry.update();
+        }
+
+        stopEncoderDrive();
+    }
+
+    /**
+     * Sets the encoder targets for the distance and plans the move to them, see updateEncoderDrive.
+     * speed is the cruise speed, the part of MAX_TPS.
+     */
+    void startEncoderDrive(double speed, double distCm, DriveDirection direction, Telemetry telemetry) {
+        // Per wheel direction of the move.
         switch (direction){
             case FORWARD:
-                newFrontLeftTarget += ticks ;
-                newFrontRightTarget += ticks;
-                newRearLeftTarget += ticks;
-                newRearRightTarget += ticks;
+                setWheelFactors(1, 1, 1, 1);
                 break;
             case BACKWARD:
-                newFrontLeftTarget -= ticks ;
-                newFrontRightTarget -= ticks;
-                newRearLeftTarget -= ticks;
-                newRearRightTarget -= ticks;
+                setWheelFactors(-1, -1, -1, -1);
                 break;
             case RIGHT:
-                newFrontLeftTarget -= ticks ;
-                newFrontRightTarget += ticks;
-                newRearLeftTarget += ticks;
-                newRearRightTarget -= ticks;
+                setWheelFactors(-1, 1, 1, -1);
                 break;
             case LEFT:
-                newFrontLeftTarget += ticks ;
-                newFrontRightTarget -= ticks;
-                newRearLeftTarget -= ticks;
-                newRearRightTarget += ticks;
+                setWheelFactors(1, -1, -1, 1);
                 break;
+        }
+        startProfileDrive(speed, distCm, telemetry);
+    }
 
+    /**
+     * Plans the move of distCm in the direction of the wheel factors.
+     */
+    private void startProfileDrive(double speed, double distCm, Telemetry telemetry) {
+        int ticks = moveTicks(distCm);
+        for (int i = 0; i < 4; i++) {
+            wheelStarts[i] = driveMotors[i].getCurrentPosition();
+            wheelPositions[i] = wheelStarts[i];
         }
-        telemetry.addData("front left: " , ticks + "," + newFrontLeftTarget);
-        telemetry.addData("front right: " , ticks + "," + newFrontRightTarget);
-        telemetry.addData("rear left: " , ticks + "," + newRearLeftTarget);
-        telemetry.addData("rear right: " , ticks + "," + newRearRightTarget);
+        frontLeftTarget = wheelStarts[0] + (int) Math.round(wheelFactors[0] * ticks);
+        frontRightTarget = wheelStarts[1] + (int) Math.round(wheelFactors[1] * ticks);
+        rearLeftTarget = wheelStarts[2] + (int) Math.round(wheelFactors[2] * ticks);
+        rearRightTarget = wheelStarts[3] + (int) Math.round(wheelFactors[3] * ticks);
+        telemetry.addData("front left: ", "%d,%d", ticks, frontLeftTarget);
+        telemetry.addData("front right: ", "%d,%d", ticks, frontRightTarget);
+        telemetry.addData("rear left: ", "%d,%d", ticks, rearLeftTarget);
+        telemetry.addData("rear right: ", "%d,%d", ticks, rearRightTarget);
 
-        frontLeftDrive.setTargetPosition(newFrontLeftTarget);
-        frontRightDrive.setTargetPosition(newFrontRightTarget);
-        rearLeftDrive.setTargetPosition(newRearLeftTarget);
-        rearRightDrive.setTargetPosition(newRearRightTarget);
+        profile = trajectories.get(ticks, profileVelocity(speed), profileShape);
+        profileScale = profile.distance == 0 ? 1 : ticks / profile.distance;
+        // Only sent if a motor is in another mode.
+        for (DcMotor motor : driveMotors) {
+            commands.setMode(motor, DcMotor.RunMode.RUN_USING_ENCODER);
+        }
+        wheelVelocity.update(wheelPositions);
+        profileTime.reset();
+        profileHeldS = 0;
+        lastProfileS = 0;
+    }
 
-        // Turn On RUN_TO_POSITION
-        frontLeftDrive.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        frontRightDrive.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        rearLeftDrive.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        rearRightDrive.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+    /**
+     * Runs the route without moving, from the field pose: its driveTo, move and turn calls only plan
+     * their profiles into the trajectories. Call it at init, so after PLAY the moves are looked up.
+     */
+    public void planRoute(double x, double y, double heading, Runnable route) {
+        planPose.x = x;
+        planPose.y = y;
+        planPose.heading = heading;
+        planning = true;
+        try {
+            route.run();
+        }
+        finally {
+            planning = false;
+        }
+    }
 
-        // reset the timeout time and start motion.
-        runtime.reset();
-        frontLeftDrive.setPower(Math.abs(speed));
-        frontRightDrive.setPower(Math.abs(speed));
-        rearLeftDrive.setPower(Math.abs(speed));
-        rearRightDrive.setPower(Math.abs(speed));
-
-        // keep looping while we are still active, and there is time left, and both motors are running.
-        // Note: We use (isBusy() && isBusy()) in the loop test, which means that when EITHER motor hits
-        // its target position, the motion will stop.  This is "safer" in the event that the robot will
-        // always end the motion as soon as possible.
-        // However, if you require that BOTH motors have finished their moves before the robot continues
-        // onto the next step, use (isBusy() || isBusy()) in the loop test.
-        while ((runtime.milliseconds() < timeoutMs) && (((LinearOpMode)callerOpmode).opModeIsActive()) &&
-                (frontLeftDrive.isBusy() && frontRightDrive.isBusy() && rearLeftDrive.isBusy() && rearRightDrive.isBusy())) {
-            telemetry.addData("front left: " ,newFrontLeftTarget + " , " + frontLeftDrive.getCurrentPosition());
-            telemetry.addData("front right: " ,newFrontRightTarget + " , " + frontRightDrive.getCurrentPosition());
-            telemetry.addData("rear left: " ,newRearLeftTarget + " , " + rearLeftDrive.getCurrentPosition());
-            telemetry.addData("rear right: " ,newRearRightTarget + " , " + rearRightDrive.getCurrentPosition());
+    private void planMove(double speed, double distCm, DriveDirection direction) {
+        trajectories.get(moveTicks(distCm), profileVelocity(speed), profileShape);
+        double forward = 0;
+        double right = 0;
+        switch (direction) {
+            case FORWARD:
+                forward = distCm;
+                break;
+            case BACKWARD:
+                forward = -distCm;
+                break;
+            case RIGHT:
+                right = distCm;
+                break;
+            case LEFT:
+                right = -distCm;
+                break;
         }
+        double rad = Math.toRadians(planPose.heading);
+        planPose.x += forward * Math.cos(rad) + right * Math.sin(rad);
+        planPose.y += forward * Math.sin(rad) - right * Math.cos(rad);
+    }
 
-        // Stop all motion;
-        frontLeftDrive.setPower(0);
-        frontRightDrive.setPower(0);
-        rearLeftDrive.setPower(0);
-        rearRightDrive.setPower(0);
+    /**
+     * @return The wheel encoder ticks of a move of distCm.
+     */
+    static int moveTicks(double distCm) {
+        return (int)(distCm / Math.cos(Math.PI/4) * COUNTS_PER_CM);
+    }
 
-        // Turn off RUN_TO_POSITION
-        frontLeftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        frontRightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        rearLeftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        rearRightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+    /**
+     * @return The cruise velocity of the profile for the speed, ticks per second.
+     */
+    static double profileVelocity(double speed) {
+        return Math.min(Math.abs(speed), 1) * MAX_TPS;
+    }
 
+    /**
+     * Sets the part of the move each wheel makes: 1 for all of it forward, -1 for all of it back.
+     * A move at an angle (forward, right), a unit vector, is forward - right, forward + right,
+     * forward + right, forward - right.
+     */
+    private void setWheelFactors(double frontLeft, double frontRight, double rearLeft, double rearRight) {
+        wheelFactors[0] = frontLeft;
+        wheelFactors[1] = frontRight;
+        wheelFactors[2] = rearLeft;
+        wheelFactors[3] = rearRight;
+    }
+
+    /**
+     * Drives every wheel along the profile: the planned velocity and acceleration as feedforward,
+     * and the distance behind the plan as feedback. While a wheel slips the plan waits, with less
+     * feedforward, so the wheels grip again before the move goes on.
+     *
+     * @return True when the profile is over and every wheel is at its target.
+     */
+    boolean updateEncoderDrive() {
+        for (int i = 0; i < 4; i++) {
+            wheelPositions[i] = driveMotors[i].getCurrentPosition();
+        }
+        wheelVelocity.update(wheelPositions);
+        double elapsed = profileTime.seconds();
+        boolean slipping = wheelVelocity.isSlipping();
+        if (slipping) {
+            profileHeldS += elapsed - lastProfileS;
+        }
+        lastProfileS = elapsed;
+        double t = elapsed - profileHeldS;
+        double planned = profileScale * profile.getPosition(t);
+        double plannedVelocity = profileScale * profile.getVelocity(t);
+        double feedforward = (plannedVelocity + profileScale * MOTOR_TAU_S * profile.getAcceleration(t)) / MAX_TPS;
+        if (slipping) {
+            feedforward *= SLIP_FEEDFORWARD_SCALE;
+        }
+        wheelVelocity.setExpected(wheelFactors[0] * plannedVelocity, wheelFactors[1] * plannedVelocity,
+                wheelFactors[2] * plannedVelocity, wheelFactors[3] * plannedVelocity);
+        boolean done = t >= profile.getDuration();
+        for (int i = 0; i < 4; i++) {
+            double error = wheelFactors[i] * planned - (wheelPositions[i] - wheelStarts[i]);
+            if (Math.abs(error) > PROFILE_TOLERANCE_TICKS) {
+                done = false;
+            }
+            driveMotors[i].setPower(Range.clip(wheelFactors[i] * feedforward + PROFILE_KP * error, -1, 1));
+        }
+        return done;
     }
+
+    void stopEncoderDrive() {
+        // Stop all motion, the motors stay in RUN_USING_ENCODER.
+        stopMotors();
+        wheelVelocity.clearExpected();
+    }
+
     public void buttonDrive(Gamepad gamepad, Telemetry telemetry) {
         double speed = 1;
         if (gamepad.right_bumper){
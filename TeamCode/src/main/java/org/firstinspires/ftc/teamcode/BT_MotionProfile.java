@@ -0,0 +1,142 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Plan of a straight move of the given distance: where to be, how fast and with what acceleration
+ * at every time since the start, within the velocity and acceleration limits.
+ *
+ * TRAPEZOID accelerates at the limit, cruises and decelerates at the limit. S_CURVE is the trapezoid
+ * averaged over jerkTimeS, which ramps the acceleration in and out and takes jerkTimeS longer. The jerk
+ * stays under maxAcceleration / jerkTimeS, or twice that on a move too short to cruise. Both end
+ * exactly at the distance.
+ */
+public class BT_MotionProfile {
+    public enum Shape {TRAPEZOID, S_CURVE}
+
+    private final double sign;
+    private final double maxAcceleration;
+    private final double peakVelocity;
+    private final double accelTime;
+    private final double accelDistance;
+    private final double cruiseTime;
+    private final double trapezoidTime;
+    private final double distance;
+    private final double jerkTime;
+
+    /**
+     * @param distance The distance to move, negative to move back.
+     * @param maxVelocity Distance units per second, positive.
+     * @param maxAcceleration Distance units per second squared, positive.
+     * @param shape The shape of the velocity.
+     * @param jerkTimeS For S_CURVE, the time to ramp the acceleration in and out.
+     */
+    public BT_MotionProfile(double distance, double maxVelocity, double maxAcceleration,
+                            Shape shape, double jerkTimeS) {
+        sign = Math.signum(distance);
+        this.distance = Math.abs(distance);
+        this.maxAcceleration = maxAcceleration;
+        // Short moves never reach the cruise velocity.
+        peakVelocity = Math.min(maxVelocity, Math.sqrt(this.distance * maxAcceleration));
+        accelTime = peakVelocity > 0 ? peakVelocity / maxAcceleration : 0;
+        accelDistance = peakVelocity * accelTime / 2;
+        cruiseTime = peakVelocity > 0 ? (this.distance - 2 * accelDistance) / peakVelocity : 0;
+        trapezoidTime = 2 * accelTime + cruiseTime;
+        jerkTime = shape == Shape.S_CURVE ? jerkTimeS : 0;
+    }
+
+    /**
+     * @return The time from the start to the end of the move, in seconds.
+     */
+    public double getDuration() {
+        return trapezoidTime + jerkTime;
+    }
+
+    public double getPosition(double t) {
+        if (jerkTime <= 0) {
+            return sign * trapezoidPosition(t);
+        }
+        return sign * (trapezoidPositionIntegral(t) - trapezoidPositionIntegral(t - jerkTime)) / jerkTime;
+    }
+
+    public double getVelocity(double t) {
+        if (jerkTime <= 0) {
+            return sign * trapezoidVelocity(t);
+        }
+        return sign * (trapezoidPosition(t) - trapezoidPosition(t - jerkTime)) / jerkTime;
+    }
+
+    public double getAcceleration(double t) {
+        if (jerkTime <= 0) {
+            return sign * trapezoidAcceleration(t);
+        }
+        return sign * (trapezoidVelocity(t) - trapezoidVelocity(t - jerkTime)) / jerkTime;
+    }
+
+    private double trapezoidAcceleration(double t) {
+        if (t < 0 || t >= trapezoidTime) {
+            return 0;
+        }
+        if (t < accelTime) {
+            return maxAcceleration;
+        }
+        return t < accelTime + cruiseTime ? 0 : -maxAcceleration;
+    }
+
+    private double trapezoidVelocity(double t) {
+        if (t <= 0 || t >= trapezoidTime) {
+            return 0;
+        }
+        if (t < accelTime) {
+            return maxAcceleration * t;
+        }
+        if (t < accelTime + cruiseTime) {
+            return peakVelocity;
+        }
+        return maxAcceleration * (trapezoidTime - t);
+    }
+
+    private double trapezoidPosition(double t) {
+        if (t <= 0) {
+            return 0;
+        }
+        if (t >= trapezoidTime) {
+            return distance;
+        }
+        if (t < accelTime) {
+            return maxAcceleration * t * t / 2;
+        }
+        if (t < accelTime + cruiseTime) {
+            return accelDistance + peakVelocity * (t - accelTime);
+        }
+        double left = trapezoidTime - t;
+        return distance - maxAcceleration * left * left / 2;
+    }
+
+    /**
+     * @return The integral of the trapezoid position from 0 to t, for the S_CURVE average.
+     */
+    private double trapezoidPositionIntegral(double t) {
+        if (t <= 0) {
+            return 0;
+        }
+        double a = maxAcceleration;
+        if (t < accelTime) {
+            return a * t * t * t / 6;
+        }
+        double atAccelEnd = a * accelTime * accelTime * accelTime / 6;
+        double cruiseEnd = accelTime + cruiseTime;
+        if (t < cruiseEnd) {
+            double u = t - accelTime;
+            return atAccelEnd + accelDistance * u + peakVelocity * u * u / 2;
+        }
+        double atCruiseEnd = atAccelEnd + accelDistance * cruiseTime + peakVelocity * cruiseTime * cruiseTime / 2;
+        double startPosition = accelDistance + peakVelocity * cruiseTime;
+        double u = Math.min(t, trapezoidTime) - cruiseEnd;
+        double integral = atCruiseEnd + startPosition * u + peakVelocity * u * u / 2 - a * u * u * u / 6;
+        if (t > trapezoidTime) {
+            integral += distance * (t - trapezoidTime);
+        }
+        return integral;
+    }
+}
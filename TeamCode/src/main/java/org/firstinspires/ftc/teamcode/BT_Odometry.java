@@ -0,0 +1,189 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Robot pose on the field from the mecanum wheel encoders and the {@link BT_Gyro} heading.
+ * The field frame is set by setPose, by default it is the start: x forward, y to the left, in cm,
+ * and the heading in degrees counter clockwise.
+ *
+ * Every update turns the wheel deltas into a robot relative move with the mecanum kinematics and
+ * adds it to the pose at the heading halfway through the move. update does not allocate, and
+ * startTracking runs it every TRACK_INTERVAL_MS on a background thread, like the gyro sampler.
+ *
+ * A wheel that slips turns more than the robot moves. When {@link BT_WheelVelocity} says a single
+ * wheel slips its delta comes from the other three instead, since for any move of the robot
+ * front left + front right = rear left + rear right.
+ */
+public class BT_Odometry {
+    static final long TRACK_INTERVAL_MS = 20;
+    // Robot travel per wheel encoder tick, the inverse of what BT_MecanumDrive.startEncoderDrive uses.
+    static final double CM_PER_TICK = Math.cos(Math.PI / 4) / BT_MecanumDrive.COUNTS_PER_CM;
+
+    public static class Pose {
+        public double x;
+        public double y;
+        public double heading;
+    }
+
+    private DcMotor[] motors;
+    private BT_Gyro gyro;
+    private volatile BT_WheelVelocity wheelVelocity = null;
+    private final int[] lastPositions = new int[4];
+    private final int[] deltas = new int[4];
+    private double lastGyroAngle = 0;
+    // Field heading minus the gyro angle.
+    private double headingOffset = 0;
+    private double x = 0;
+    private double y = 0;
+
+    // Latest pose for other threads. poseSeq is odd while it is being written.
+    private volatile int poseSeq = 0;
+    private volatile double poseX = 0;
+    private volatile double poseY = 0;
+    private volatile double poseHeading = 0;
+
+    private final BT_PeriodicWorker tracker = new BT_PeriodicWorker(
+            "BT_Odometry tracker", TRACK_INTERVAL_MS, new Runnable() {
+                @Override
+                public void run() {
+                    update();
+                }
+            });
+
+    /* Constructor */
+    public BT_Odometry() {
+    }
+
+    /**
+     * @param motors The front left, front right, rear left and rear right drive motors.
+     */
+    public synchronized void init(DcMotor[] motors, BT_Gyro gyro) {
+        this.motors = motors;
+        this.gyro = gyro;
+        readBase();
+    }
+
+    /**
+     * Sets where the slipping wheels are told, null to trust every wheel.
+     */
+    public void setWheelVelocity(BT_WheelVelocity wheelVelocity) {
+        this.wheelVelocity = wheelVelocity;
+    }
+
+    /**
+     * Sets the current pose, which sets the field frame.
+     */
+    public synchronized void setPose(double x, double y, double heading) {
+        readBase();
+        this.x = x;
+        this.y = y;
+        headingOffset = heading - lastGyroAngle;
+        publish();
+    }
+
+    /**
+     * Reads the encoders and the gyro and moves the pose by what the robot did since the last update.
+     */
+    public synchronized void update() {
+        for (int i = 0; i < 4; i++) {
+            int position = motors[i].getCurrentPosition();
+            deltas[i] = position - lastPositions[i];
+            lastPositions[i] = position;
+        }
+        BT_WheelVelocity velocity = wheelVelocity;
+        switch (velocity == null ? 0 : velocity.getSlipMask()) {
+            case 1:
+                deltas[0] = deltas[2] + deltas[3] - deltas[1];
+                break;
+            case 2:
+                deltas[1] = deltas[2] + deltas[3] - deltas[0];
+                break;
+            case 4:
+                deltas[2] = deltas[0] + deltas[1] - deltas[3];
+                break;
+            case 8:
+                deltas[3] = deltas[0] + deltas[1] - deltas[2];
+                break;
+        }
+        // Same wheel directions as BT_MecanumDrive.startEncoderDrive.
+        double forward = (deltas[0] + deltas[1] + deltas[2] + deltas[3]) / 4.0 * CM_PER_TICK;
+        double right = (-deltas[0] + deltas[1] + deltas[2] - deltas[3]) / 4.0 * CM_PER_TICK;
+
+        double gyroAngle = gyro.getRawAngle();
+        double turn = gyroAngle - lastGyroAngle;
+        while (turn > 180) turn -= 360;
+        while (turn <= -180) turn += 360;
+        double rad = Math.toRadians(lastGyroAngle + headingOffset + turn / 2);
+        x += forward * Math.cos(rad) + right * Math.sin(rad);
+        y += forward * Math.sin(rad) - right * Math.cos(rad);
+        lastGyroAngle = gyroAngle;
+        publish();
+    }
+
+    /**
+     * Call with the encoders reset, holding the lock of this object from before the reset, so the
+     * reset is not taken as a move.
+     */
+    synchronized void encodersReset() {
+        for (int i = 0; i < 4; i++) {
+            lastPositions[i] = 0;
+        }
+    }
+
+    /**
+     * Copies the latest pose, it never blocks.
+     */
+    public void getPose(Pose pose) {
+        int seq;
+        do {
+            seq = poseSeq;
+            pose.x = poseX;
+            pose.y = poseY;
+            pose.heading = poseHeading;
+        } while ((seq & 1) != 0 || seq != poseSeq);
+    }
+
+    /**
+     * Starts updating every TRACK_INTERVAL_MS on a background thread.
+     * Must be matched by stopTracking() when the opmode ends.
+     */
+    public synchronized void startTracking() {
+        if (tracker.isRunning()) {
+            return;
+        }
+        readBase();
+        tracker.start();
+    }
+
+    public void stopTracking() {
+        tracker.stop();
+    }
+
+    public boolean isTracking() {
+        return tracker.isRunning();
+    }
+
+    /**
+     * Takes the current encoders and gyro as the start of the next update.
+     */
+    private void readBase() {
+        for (int i = 0; i < 4; i++) {
+            lastPositions[i] = motors[i].getCurrentPosition();
+        }
+        lastGyroAngle = gyro.getRawAngle();
+    }
+
+    private void publish() {
+        double heading = lastGyroAngle + headingOffset;
+        while (heading > 180) heading -= 360;
+        while (heading <= -180) heading += 360;
+        poseSeq++;
+        poseX = x;
+        poseY = y;
+        poseHeading = heading;
+        poseSeq++;
+    }
+}
@@ -0,0 +1,126 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.Range;
+
+/**
+ * This is NOT an opmode.
+ *
+ * PIDF controller. Call update with the error and the measurement once per loop, it returns the
+ * output clipped to [-maxOutput, maxOutput].
+ *
+ *  - The derivative is taken on the measurement, not the error, so a new target does not kick the output.
+ *    It is low pass filtered with rateTauS, since a sensor sampled slower than the loop reads the
+ *    same value for a few loops and then jumps.
+ *  - The integral only grows within integralZone of the target and while the output is not saturated,
+ *    is clipped to maxIntegral and is cleared when the error changes sign, so it does not wind up on
+ *    the way to the target.
+ *  - kF is a static feedforward: kF * sign(error) is added while out of tolerance, to overcome friction.
+ *  - isSettled is true once the error is within tolerance and the measurement rate is within
+ *    rateTolerance for settleMs.
+ */
+public class BT_PIDF {
+    public double kP;
+    public double kI;
+    public double kD;
+    public double kF;
+    public double maxOutput = 1;
+    // Largest output from the integral term.
+    public double maxIntegral = 0.2;
+    public double integralZone = Double.MAX_VALUE;
+    public double tolerance;
+    // Measurement units per second.
+    public double rateTolerance = Double.MAX_VALUE;
+    public double settleMs = 0;
+    // Time constant of the rate filter, in seconds, 0 for no filter.
+    public double rateTauS = 0;
+    // Range of a measurement that wraps around, like 360 for a heading in degrees, 0 if it does not.
+    public double wrapRange = 0;
+
+    private double integral = 0;
+    private double lastMeasurement = 0;
+    private long lastNs = 0;
+    private boolean first = true;
+    private double rate = 0;
+    private long inToleranceSinceNs = -1;
+    private boolean settled = false;
+    private double output = 0;
+    private double lastError = 0;
+
+    /* Constructor */
+    public BT_PIDF(double kP, double kI, double kD, double kF) {
+        this.kP = kP;
+        this.kI = kI;
+        this.kD = kD;
+        this.kF = kF;
+    }
+
+    /**
+     * Forgets the integral, the derivative and the settling, call it when the target changes a lot
+     * or the controller was not used for a while.
+     */
+    public void reset() {
+        integral = 0;
+        first = true;
+        rate = 0;
+        inToleranceSinceNs = -1;
+        settled = false;
+        output = 0;
+    }
+
+    /**
+     * @param error The target minus the measurement.
+     * @param measurement The measurement, for the derivative.
+     * @return The output.
+     */
+    public double update(double error, double measurement) {
+        long now = BT_Clock.nanoTime();
+        double dt = first ? 0 : (now - lastNs) / 1e9;
+        if (dt > 0) {
+            double change = measurement - lastMeasurement;
+            if (wrapRange > 0) {
+                while (change > wrapRange / 2) change -= wrapRange;
+                while (change <= -wrapRange / 2) change += wrapRange;
+            }
+            rate += (change / dt - rate) * (rateTauS > 0 ? Math.min(1, dt / rateTauS) : 1);
+            if (Math.signum(error) != Math.signum(lastError)) {
+                integral = 0;
+            }
+            // Only integrate near the target, and while that can still change the output.
+            boolean saturated = Math.abs(output) >= maxOutput && Math.signum(output) == Math.signum(error);
+            if (!saturated && kI != 0 && Math.abs(error) <= integralZone) {
+                integral = Range.clip(integral + error * dt, -maxIntegral / Math.abs(kI), maxIntegral / Math.abs(kI));
+            }
+        }
+        first = false;
+        lastNs = now;
+        lastError = error;
+        lastMeasurement = measurement;
+
+        boolean inTolerance = Math.abs(error) <= tolerance;
+        if (inTolerance && Math.abs(rate) <= rateTolerance) {
+            if (inToleranceSinceNs < 0) {
+                inToleranceSinceNs = now;
+            }
+            settled = (now - inToleranceSinceNs) / 1e6 >= settleMs;
+        }
+        else {
+            inToleranceSinceNs = -1;
+            settled = false;
+        }
+
+        double feedforward = inTolerance ? 0 : kF * Math.signum(error);
+        output = Range.clip(kP * error + kI * integral - kD * rate + feedforward, -maxOutput, maxOutput);
+        return output;
+    }
+
+    public boolean isSettled() {
+        return settled;
+    }
+
+    /**
+     * @return The measurement rate of the last update, units per second.
+     */
+    public double getRate() {
+        return rate;
+    }
+}
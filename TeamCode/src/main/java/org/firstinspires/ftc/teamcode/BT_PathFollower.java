@@ -0,0 +1,209 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.Range;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Pure pursuit path follower: drives through the field waypoints without stopping at them, always
+ * aiming at the point LOOKAHEAD_CM further along the path, and turns to the waypoint headings on
+ * the way. A mecanum base drives and turns at the same time, so the heading does not depend on the
+ * direction of travel.
+ *
+ * Call start with the pose at the start of the path, then update with the pose every loop. update
+ * gives the robot relative forward, right and turn powers and does not allocate. It only slows down
+ * for the end of the path, so a change of direction back along the path should be a path of its own.
+ */
+public class BT_PathFollower {
+    public static class Waypoint {
+        // Field position, cm.
+        public final double x;
+        public final double y;
+        // Field heading to be at when reaching the waypoint, degrees counter clockwise.
+        public final double heading;
+        // Speed on the way to the waypoint, the part of the top speed.
+        public final double speed;
+
+        public Waypoint(double x, double y, double heading, double speed) {
+            this.x = x;
+            this.y = y;
+            this.heading = heading;
+            this.speed = speed;
+        }
+    }
+
+    static final double LOOKAHEAD_CM = 25;
+    static final double END_TOLERANCE_CM = 2;
+    // Top speed and acceleration of the robot, from the limits of the encoderDrive profile.
+    static final double MAX_CM_PER_S = BT_MecanumDrive.MAX_TPS * BT_Odometry.CM_PER_TICK;
+    static final double MAX_ACCELERATION = BT_MecanumDrive.PROFILE_MAX_ACCELERATION * BT_Odometry.CM_PER_TICK;
+    // Least power that still moves the robot, for the last cm.
+    static final double MIN_POWER = 0.06;
+
+    private final Waypoint[] points;
+    private final BT_PIDF headingController;
+    // Segment i goes to points[i], from points[i - 1] or from the start.
+    private final double[] lengths;
+    // The length of the path after segment i.
+    private final double[] lengthsAfter;
+    private double startX = 0;
+    private double startY = 0;
+    private double startHeading = 0;
+    private int segment = 0;
+    private double remaining = 0;
+    private double power = 0;
+    private long lastNs = 0;
+    private double forward = 0;
+    private double right = 0;
+    private double turn = 0;
+
+    /**
+     * @param headingController Turns the robot to the headings, its output is the turn power.
+     * @param points The waypoints, at least one.
+     */
+    public BT_PathFollower(BT_PIDF headingController, Waypoint... points) {
+        if (points.length == 0) {
+            throw new IllegalArgumentException("A path needs a waypoint");
+        }
+        this.points = points;
+        this.headingController = headingController;
+        lengths = new double[points.length];
+        lengthsAfter = new double[points.length];
+    }
+
+    /**
+     * Starts the path from the pose.
+     */
+    public void start(BT_Odometry.Pose pose) {
+        startX = pose.x;
+        startY = pose.y;
+        startHeading = pose.heading;
+        double after = 0;
+        for (int i = points.length - 1; i >= 0; i--) {
+            lengthsAfter[i] = after;
+            lengths[i] = Math.hypot(points[i].x - segmentX(i), points[i].y - segmentY(i));
+            after += lengths[i];
+        }
+        segment = 0;
+        remaining = after;
+        power = 0;
+        lastNs = BT_Clock.nanoTime();
+        headingController.reset();
+    }
+
+    /**
+     * Works out the powers for the pose, see getForward, getRight and getTurn.
+     *
+     * @return True when the robot is at the last waypoint and settled on its heading.
+     */
+    public boolean update(BT_Odometry.Pose pose) {
+        long now = BT_Clock.nanoTime();
+        double dt = (now - lastNs) / 1e9;
+        lastNs = now;
+
+        // Go on to the next segment once past the end of this one.
+        double t = progress(segment, pose);
+        while (segment < points.length - 1 && t >= 1) {
+            segment++;
+            t = progress(segment, pose);
+        }
+        t = Range.clip(t, 0, 1);
+        Waypoint last = points[points.length - 1];
+        if (segment == points.length - 1) {
+            remaining = Math.hypot(last.x - pose.x, last.y - pose.y);
+        }
+        else {
+            remaining = (1 - t) * lengths[segment] + lengthsAfter[segment];
+        }
+
+        // Aim at the point LOOKAHEAD_CM along the path from the robot, or at the end.
+        double aimX = last.x;
+        double aimY = last.y;
+        double along = t * lengths[segment] + LOOKAHEAD_CM;
+        for (int i = segment; i < points.length; i++) {
+            if (along < lengths[i]) {
+                double part = along / lengths[i];
+                aimX = segmentX(i) + (points[i].x - segmentX(i)) * part;
+                aimY = segmentY(i) + (points[i].y - segmentY(i)) * part;
+                break;
+            }
+            along -= lengths[i];
+        }
+
+        // Ramp up to the waypoint speed, and down to stop at the end.
+        double stopping = Math.sqrt(2 * MAX_ACCELERATION * remaining) / MAX_CM_PER_S;
+        double target = Math.min(points[segment].speed, stopping);
+        power = Math.min(target, power + MAX_ACCELERATION / MAX_CM_PER_S * dt);
+        double aimDistance = Math.hypot(aimX - pose.x, aimY - pose.y);
+        boolean atEnd = remaining <= END_TOLERANCE_CM || aimDistance == 0;
+        if (atEnd) {
+            power = 0;
+        }
+        else {
+            power = Math.max(power, MIN_POWER);
+        }
+        double fieldX = atEnd ? 0 : (aimX - pose.x) / aimDistance * power;
+        double fieldY = atEnd ? 0 : (aimY - pose.y) / aimDistance * power;
+        double rad = Math.toRadians(pose.heading);
+        forward = fieldX * Math.cos(rad) + fieldY * Math.sin(rad);
+        right = fieldX * Math.sin(rad) - fieldY * Math.cos(rad);
+
+        // Turn from the heading of the last waypoint to the next one along the segment.
+        double fromHeading = segment == 0 ? startHeading : points[segment - 1].heading;
+        double targetHeading = fromHeading + wrap(points[segment].heading - fromHeading) * t;
+        turn = headingController.update(wrap(targetHeading - pose.heading), pose.heading);
+        if (atEnd && headingController.isSettled()) {
+            turn = 0;
+            return true;
+        }
+        return false;
+    }
+
+    public double getForward() {
+        return forward;
+    }
+
+    public double getRight() {
+        return right;
+    }
+
+    /**
+     * @return The turn power, positive turns counter clockwise.
+     */
+    public double getTurn() {
+        return turn;
+    }
+
+    /**
+     * @return The path left, in cm.
+     */
+    public double getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * @return How far the robot is along the segment, 0 at its start and 1 at its end.
+     */
+    private double progress(int i, BT_Odometry.Pose pose) {
+        if (lengths[i] == 0) {
+            return 1;
+        }
+        double dx = points[i].x - segmentX(i);
+        double dy = points[i].y - segmentY(i);
+        return ((pose.x - segmentX(i)) * dx + (pose.y - segmentY(i)) * dy) / (lengths[i] * lengths[i]);
+    }
+
+    private double segmentX(int i) {
+        return i == 0 ? startX : points[i - 1].x;
+    }
+
+    private double segmentY(int i) {
+        return i == 0 ? startY : points[i - 1].y;
+    }
+
+    private static double wrap(double degrees) {
+        while (degrees > 180) degrees -= 360;
+        while (degrees <= -180) degrees += 360;
+        return degrees;
+    }
+}
@@ -0,0 +1,79 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Runs a task every interval on a background thread, for the samplers and updaters that keep
+ * the hardware reads off the opmode thread. After a run it sleeps for what is left of the
+ * interval, a run longer than the interval is followed by the next one at once.
+ *
+ * start() must be matched by stop() when the opmode ends. A thread that is stopped ends after
+ * the run it is in, even if the worker is started again before that.
+ */
+public class BT_PeriodicWorker {
+    private final String name;
+    private final long intervalMs;
+    private final Runnable task;
+
+    // The thread that runs the task, null when stopped.
+    private volatile Thread thread = null;
+
+    /* Constructor */
+    public BT_PeriodicWorker(String name, long intervalMs, Runnable task) {
+        this.name = name;
+        this.intervalMs = intervalMs;
+        this.task = task;
+    }
+
+    /**
+     * Starts the thread, if it is not running already.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runLoop();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the thread and waits up to ten intervals for the run it is in to end.
+     */
+    public void stop() {
+        Thread stopping;
+        synchronized (this) {
+            stopping = thread;
+            thread = null;
+        }
+        if (stopping != null && stopping != Thread.currentThread()) {
+            stopping.interrupt();
+            try {
+                stopping.join(intervalMs * 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    private void runLoop() {
+        Thread self = Thread.currentThread();
+        while (thread == self && !self.isInterrupted()) {
+            long start = BT_Clock.nanoTime();
+            task.run();
+            long waitMs = intervalMs - (BT_Clock.nanoTime() - start) / 1000000;
+            if (waitMs > 0) {
+                BT_Clock.sleep(waitMs);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * This is NOT an opmode.
+ *
+ * A {@link BT_MotionProfile} sampled every SAMPLE_S: the position, velocity and acceleration at
+ * every sample, as floats. Reading it is a table lookup between two samples, with no planning.
+ * The samples can be on the heap or in a memory mapped {@link BT_TrajectoryCache} file.
+ */
+public class BT_ProfileTable {
+    static final double SAMPLE_S = 0.01;
+    // Floats per sample: position, velocity and acceleration.
+    static final int FLOATS_PER_SAMPLE = 3;
+    static final int BYTES_PER_SAMPLE = FLOATS_PER_SAMPLE * 4;
+
+    // What it was sampled for.
+    final double distance;
+    final double maxVelocity;
+    final BT_MotionProfile.Shape shape;
+    private final ByteBuffer samples;
+    private final int count;
+
+    /**
+     * Samples the profile.
+     */
+    public BT_ProfileTable(BT_MotionProfile profile, double distance, double maxVelocity,
+                           BT_MotionProfile.Shape shape) {
+        this.distance = distance;
+        this.maxVelocity = maxVelocity;
+        this.shape = shape;
+        // One more sample at the end, where the profile is done.
+        count = (int) Math.ceil(profile.getDuration() / SAMPLE_S) + 1;
+        samples = ByteBuffer.allocate(count * BYTES_PER_SAMPLE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            double t = i * SAMPLE_S;
+            samples.putFloat((float) profile.getPosition(t));
+            samples.putFloat((float) profile.getVelocity(t));
+            samples.putFloat((float) profile.getAcceleration(t));
+        }
+        samples.flip();
+    }
+
+    /**
+     * Reads the samples from the buffer, from its position to its limit, without copying them.
+     */
+    BT_ProfileTable(ByteBuffer samples, double distance, double maxVelocity, BT_MotionProfile.Shape shape) {
+        this.distance = distance;
+        this.maxVelocity = maxVelocity;
+        this.shape = shape;
+        this.samples = samples.slice().order(ByteOrder.LITTLE_ENDIAN);
+        count = this.samples.remaining() / BYTES_PER_SAMPLE;
+    }
+
+    /**
+     * @return The time from the start to the end of the move, in seconds.
+     */
+    public double getDuration() {
+        return (count - 1) * SAMPLE_S;
+    }
+
+    public double getPosition(double t) {
+        return read(t, 0);
+    }
+
+    public double getVelocity(double t) {
+        return read(t, 1);
+    }
+
+    public double getAcceleration(double t) {
+        return read(t, 2);
+    }
+
+    /**
+     * Writes the samples to the buffer.
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.put(samples.duplicate());
+    }
+
+    int getByteCount() {
+        return count * BYTES_PER_SAMPLE;
+    }
+
+    private double read(double t, int field) {
+        double index = t / SAMPLE_S;
+        if (index <= 0) {
+            return sample(0, field);
+        }
+        if (index >= count - 1) {
+            return sample(count - 1, field);
+        }
+        int i = (int) index;
+        double part = index - i;
+        double before = sample(i, field);
+        return before + (sample(i + 1, field) - before) * part;
+    }
+
+    private float sample(int i, int field) {
+        return samples.getFloat(i * BYTES_PER_SAMPLE + field * 4);
+    }
+}
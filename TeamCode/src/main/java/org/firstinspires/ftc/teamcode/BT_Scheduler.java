@@ -0,0 +1,31 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.util.ElapsedTime;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Runs a {@link BT_Action} from a single loop in a linear opmode, so that the drive, the arm and
+ * the intake can work at the same time.
+ */
+public class BT_Scheduler {
+
+    /**
+     * Runs the action until it is done or the opmode is stopped. Every loop sends the telemetry the
+     * steps added, so it does not pile up, and yields to the sampler threads.
+     * @return The time it took in ms.
+     */
+    public static double run(LinearOpMode opMode, BT_Action action) {
+        ElapsedTime runtime = new BT_Timer();
+        while (opMode.opModeIsActive()) {
+            if (action.step()) {
+                return runtime.milliseconds();
+            }
+            opMode.telemetry.update();
+            opMode.idle();
+        }
+        action.cancel();
+        return runtime.milliseconds();
+    }
+}
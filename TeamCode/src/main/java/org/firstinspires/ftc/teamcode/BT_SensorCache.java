@@ -0,0 +1,120 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Per loop snapshot of the robot sensors, owned by {@link BT_Hardware}.
+ * Every encoder, servo position and the IMU heading is read from the hardware at most once per
+ * cycle, and every subsystem asking for it in the same cycle gets the same value.
+ * Until {@link #startCycle()} is called for the first time (as in the linear autonomous opmodes)
+ * every read goes straight to the hardware.
+ */
+public class BT_SensorCache {
+    private static class Entry {
+        long cycle = -1;
+        double value;
+    }
+
+    private final Map<Object, Entry> entries = new HashMap<Object, Entry>();
+    private final Map<Object, Entry> powers = new HashMap<Object, Entry>();
+    private long cycle = 0;
+    private int reads = 0;
+    private int lastCycleReads = 0;
+
+    /* Constructor */
+    public BT_SensorCache(){
+    }
+
+    /**
+     * Invalidates the snapshot. Call once at the start of every loop.
+     */
+    public void startCycle() {
+        lastCycleReads = reads;
+        reads = 0;
+        cycle++;
+    }
+
+    public int getPosition(DcMotor motor) {
+        Entry entry = getEntry(entries, motor);
+        if (entry == null) {
+            reads++;
+            return motor.getCurrentPosition();
+        }
+        if (entry.cycle != cycle) {
+            reads++;
+            entry.value = motor.getCurrentPosition();
+            entry.cycle = cycle;
+        }
+        return (int) entry.value;
+    }
+
+    public double getPower(DcMotor motor) {
+        Entry entry = getEntry(powers, motor);
+        if (entry == null) {
+            reads++;
+            return motor.getPower();
+        }
+        if (entry.cycle != cycle) {
+            reads++;
+            entry.value = motor.getPower();
+            entry.cycle = cycle;
+        }
+        return entry.value;
+    }
+
+    public double getPosition(Servo servo) {
+        Entry entry = getEntry(entries, servo);
+        if (entry == null) {
+            reads++;
+            return servo.getPosition();
+        }
+        if (entry.cycle != cycle) {
+            reads++;
+            entry.value = servo.getPosition();
+            entry.cycle = cycle;
+        }
+        return entry.value;
+    }
+
+    public double getAngle(BT_Gyro gyro) {
+        Entry entry = getEntry(entries, gyro);
+        if (entry == null) {
+            reads++;
+            return gyro.getAngle();
+        }
+        if (entry.cycle != cycle) {
+            reads++;
+            entry.value = gyro.getAngle();
+            entry.cycle = cycle;
+        }
+        return entry.value;
+    }
+
+    /**
+     * @return The number of hardware reads made in the last complete cycle.
+     */
+    public int getLastCycleReads() {
+        return lastCycleReads;
+    }
+
+    /**
+     * @return The entry of the given device, or null while caching is not started.
+     */
+    private Entry getEntry(Map<Object, Entry> map, Object device) {
+        if (cycle == 0) {
+            return null;
+        }
+        Entry entry = map.get(device);
+        if (entry == null) {
+            entry = new Entry();
+            map.put(device, entry);
+        }
+        return entry;
+    }
+}
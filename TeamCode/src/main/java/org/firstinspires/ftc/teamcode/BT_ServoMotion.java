@@ -0,0 +1,274 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.util.Range;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Moves servos over time instead of stepping them between sleeps. moveTo starts a move at a
+ * speed, in servo position per second, and update writes where every move should be by now, so
+ * nothing waits for a servo. update runs from a loop, from the {@link BT_Action} of a move, or
+ * every UPDATE_INTERVAL_MS on a background thread after start(), like the gyro sampler.
+ *
+ * Every move gives a {@link Motion}, to check when the servo is there or to start the next move
+ * then. The servos moved here should not be written anywhere else, since only changed positions
+ * are written.
+ */
+public class BT_ServoMotion {
+    static final long UPDATE_INTERVAL_MS = 20;
+
+    /**
+     * A move of a servo. It is done when the servo is at the target, or when it was cancelled
+     * by another move of the same servo.
+     */
+    public class Motion {
+        final Servo servo;
+        private double from;
+        private final double to;
+        private double speed;
+        private long startNs = 0;
+        private double lastWritten = Double.NaN;
+        // Started by update when after is done, null once started.
+        private Motion after = null;
+        private volatile boolean done = false;
+        private volatile boolean cancelled = false;
+
+        Motion(Servo servo, double to, double speed) {
+            this.servo = servo;
+            this.to = to;
+            this.speed = speed;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public double getTarget() {
+            return to;
+        }
+
+        /**
+         * Moves the servo once this move is done, see moveTo. Cancelled if this move is.
+         * Asking for the same move again gives the same Motion.
+         */
+        public Motion then(Servo servo, double position, double speed) {
+            position = Range.clip(position, 0, 1);
+            synchronized (BT_ServoMotion.this) {
+                if (done && !cancelled) {
+                    return moveTo(servo, position, speed);
+                }
+                for (int i = 0; i < waiting.size(); i++) {
+                    Motion next = waiting.get(i);
+                    if (next.after == this && next.servo == servo && next.to == position) {
+                        return next;
+                    }
+                }
+                Motion next = new Motion(servo, position, speed);
+                next.after = this;
+                waiting.add(next);
+                startWaiting(BT_Clock.nanoTime());
+                return next;
+            }
+        }
+
+        /**
+         * @return An action that is done with the move, it updates the moves itself so it also
+         * runs without the background thread.
+         */
+        public BT_Action action() {
+            return new BT_Action() {
+                @Override
+                public boolean update() {
+                    BT_ServoMotion.this.update();
+                    return done;
+                }
+            };
+        }
+
+        private double positionAt(long now) {
+            if (done) {
+                return to;
+            }
+            double travel = speed * (now - startNs) / 1e9;
+            double distance = to - from;
+            if (Math.abs(distance) <= travel) {
+                return to;
+            }
+            return from + Math.signum(distance) * travel;
+        }
+
+        private void write(double position) {
+            if (position != lastWritten) {
+                servo.setPosition(position);
+                lastWritten = position;
+            }
+        }
+    }
+
+    // The latest move of every servo, done or not.
+    private final List<Motion> motions = new ArrayList<Motion>();
+    // Moves waiting for another move to be done.
+    private final List<Motion> waiting = new ArrayList<Motion>();
+
+    private final BT_PeriodicWorker updater = new BT_PeriodicWorker(
+            "BT_ServoMotion updater", UPDATE_INTERVAL_MS, new Runnable() {
+                @Override
+                public void run() {
+                    update();
+                }
+            });
+
+    /* Constructor */
+    public BT_ServoMotion() {
+    }
+
+    /**
+     * Moves the servo to the position at the speed. A servo that was never moved here goes
+     * there at once, and so does an infinite speed. Moving to the target of the current move
+     * keeps it, at the new speed. The position is clipped to the servo range, so a move past
+     * it takes no time to come back from.
+     */
+    public synchronized Motion moveTo(Servo servo, double position, double speed) {
+        position = Range.clip(position, 0, 1);
+        long now = BT_Clock.nanoTime();
+        Motion current = find(servo);
+        if (current != null && !current.cancelled && current.to == position) {
+            if (!current.done && current.speed != speed) {
+                current.from = current.positionAt(now);
+                current.startNs = now;
+                current.speed = speed;
+            }
+            return current;
+        }
+        Motion motion = new Motion(servo, position, speed);
+        begin(motion, now);
+        return motion;
+    }
+
+    /**
+     * Moves the servo to the position at once.
+     */
+    public Motion jumpTo(Servo servo, double position) {
+        return moveTo(servo, position, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Stops the servo where it is now.
+     */
+    public synchronized void hold(Servo servo) {
+        Motion current = find(servo);
+        if (current == null || current.done) {
+            return;
+        }
+        long now = BT_Clock.nanoTime();
+        jumpTo(servo, current.positionAt(now));
+    }
+
+    /**
+     * @return Where the servo is sent by now, NaN if it was never moved here.
+     */
+    public synchronized double getPosition(Servo servo) {
+        Motion current = find(servo);
+        return current == null ? Double.NaN : current.positionAt(BT_Clock.nanoTime());
+    }
+
+    /**
+     * @return True if a move of the servo is under way.
+     */
+    public synchronized boolean isMoving(Servo servo) {
+        Motion current = find(servo);
+        return current != null && !current.done;
+    }
+
+    /**
+     * Writes where every move should be by now and starts the moves that were waiting for them.
+     */
+    public synchronized void update() {
+        long now = BT_Clock.nanoTime();
+        for (int i = 0; i < motions.size(); i++) {
+            Motion motion = motions.get(i);
+            if (!motion.done) {
+                double position = motion.positionAt(now);
+                motion.write(position);
+                if (position == motion.to) {
+                    motion.done = true;
+                }
+            }
+        }
+        startWaiting(now);
+    }
+
+    /**
+     * Starts updating every UPDATE_INTERVAL_MS on a background thread.
+     * Must be matched by stop() when the opmode ends.
+     */
+    public synchronized void start() {
+        if (updater.isRunning()) {
+            return;
+        }
+        updater.start();
+    }
+
+    public void stop() {
+        updater.stop();
+    }
+
+    private Motion find(Servo servo) {
+        for (int i = 0; i < motions.size(); i++) {
+            if (motions.get(i).servo == servo) {
+                return motions.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes the motion the move of its servo from where the servo is now, cancelling the last one.
+     */
+    private void begin(Motion motion, long now) {
+        Motion current = find(motion.servo);
+        motion.startNs = now;
+        if (current == null) {
+            motion.from = motion.to;
+            motions.add(motion);
+        }
+        else {
+            motion.from = current.positionAt(now);
+            motion.lastWritten = current.lastWritten;
+            if (!current.done) {
+                current.cancelled = true;
+                current.done = true;
+            }
+            motions.set(motions.indexOf(current), motion);
+        }
+        if (motion.from == motion.to || Double.isInfinite(motion.speed)) {
+            motion.from = motion.to;
+            motion.write(motion.to);
+            motion.done = true;
+        }
+    }
+
+    private void startWaiting(long now) {
+        for (int i = 0; i < waiting.size(); i++) {
+            Motion motion = waiting.get(i);
+            if (motion.after.cancelled) {
+                waiting.remove(i--);
+                motion.cancelled = true;
+                motion.done = true;
+            }
+            else if (motion.after.done) {
+                waiting.remove(i--);
+                motion.after = null;
+                begin(motion, now);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Limits how fast a value changes, in units per second, so the limit is the same at any loop
+ * rate. Moving away from zero is limited by the rise rate and moving back to zero by the fall
+ * rate, which may be infinite to stop at once. A change of sign goes to zero at the fall rate
+ * and on at the rise rate for the rest of the step.
+ *
+ * calculate takes the step time from {@link BT_Clock}, so it runs on the simulated clock too,
+ * or the step can be given. Neither allocates.
+ */
+public class BT_SlewLimiter {
+    private final double riseRate;
+    private final double fallRate;
+    private double value = 0;
+    private long lastNs = 0;
+    private boolean started = false;
+
+    /* Constructor */
+    public BT_SlewLimiter(double riseRate, double fallRate) {
+        this.riseRate = riseRate;
+        this.fallRate = fallRate;
+    }
+
+    /**
+     * @return The value moved towards the target by what the rates allow since the last call.
+     * The first call after a reset only starts the clock.
+     */
+    public double calculate(double target) {
+        long now = BT_Clock.nanoTime();
+        double dtS = started ? (now - lastNs) / 1e9 : 0;
+        started = true;
+        lastNs = now;
+        return calculate(target, dtS);
+    }
+
+    /**
+     * @return The value moved towards the target by what the rates allow in dtS seconds.
+     */
+    public double calculate(double target, double dtS) {
+        if (dtS <= 0 || target == value) {
+            return value;
+        }
+        if (value != 0 && Math.signum(target - value) != Math.signum(value)) {
+            // Towards zero, and past it if the target has the other sign.
+            boolean crossing = target == 0 || Math.signum(target) != Math.signum(value);
+            double distance = Math.abs(crossing ? value : value - target);
+            double maxFall = fallRate * dtS;
+            if (maxFall < distance) {
+                value -= Math.signum(value) * maxFall;
+                return value;
+            }
+            dtS -= distance / fallRate;
+            value = crossing ? 0 : target;
+            if (!crossing) {
+                return value;
+            }
+        }
+        double maxRise = riseRate * dtS;
+        value += Math.max(-maxRise, Math.min(target - value, maxRise));
+        return value;
+    }
+
+    /**
+     * Sets the value and keeps the clock, so the next calculate ramps from it at once.
+     */
+    public void setValue(double value) {
+        this.value = value;
+    }
+
+    /**
+     * Sets the value, and makes the next calculate start the clock again. For a hand off, after
+     * the value was not calculated for a while.
+     */
+    public void reset(double value) {
+        this.value = value;
+        started = false;
+    }
+
+    public double getValue() {
+        return value;
+    }
+}
@@ -37,21 +37,179 @@ import org.firstinspires.ftc.robotcore.external.Telemetry;
 import org.firstinspires.ftc.robotcore.external.navigation.RelicRecoveryVuMark;
 
 
+/**
+ * Status lines of the opmode for the telemetry, kept in a ring buffer of CAPACITY entries that
+ * is allocated once. Adding a line only stores it, the text is built when getStatusLine is called.
+ * When the buffer is full, the oldest lines are dropped.
+ */
 public class BT_Status {
-    private static String statusLine;
+    public enum Severity {DEBUG, INFO, WARNING, ERROR}
+
+    static final int CAPACITY = 32;
+    static final int MAX_RATE_LIMITS = 16;
+
+    private static class Entry {
+        Severity severity;
+        String text;
+        double value;
+        boolean hasValue;
+    }
+
+    private static final Entry[] entries = new Entry[CAPACITY];
+    private static int first = 0;
+    private static int size = 0;
+    private static Severity minSeverity = Severity.DEBUG;
+    // Keys with a rate limit, the shortest time between their lines and when the last one was added.
+    private static final String[] limitKeys = new String[MAX_RATE_LIMITS];
+    private static final long[] limitIntervalNs = new long[MAX_RATE_LIMITS];
+    private static final long[] limitLastNs = new long[MAX_RATE_LIMITS];
+    private static int limits = 0;
+    private static final StringBuilder text = new StringBuilder();
+    private static String statusLine = "";
+    private static boolean changed = false;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            entries[i] = new Entry();
+        }
+    }
 
     public BT_Status(){
         cleanStatus();
     }
 
-    public static void cleanStatus(){
-        statusLine = "";
+    public static synchronized void cleanStatus(){
+        for (int i = 0; i < CAPACITY; i++) {
+            entries[i].text = null;
+        }
+        first = 0;
+        size = 0;
+        changed = true;
     }
+
     public static void addLine(String line){
-        statusLine = statusLine + "\n" + line;
+        addLine(Severity.INFO, line);
+    }
+
+    public static synchronized void addLine(Severity severity, String line){
+        Entry entry = add(severity);
+        if (entry != null) {
+            entry.text = line;
+            entry.hasValue = false;
+        }
+    }
+
+    /**
+     * Adds a "key: value" line. The key is also the rate limit key.
+     */
+    public static void addValue(String key, double value){
+        addValue(Severity.DEBUG, key, value);
+    }
+
+    public static synchronized void addValue(Severity severity, String key, double value){
+        if (!isAllowed(key)) {
+            return;
+        }
+        Entry entry = add(severity);
+        if (entry != null) {
+            entry.text = key;
+            entry.value = value;
+            entry.hasValue = true;
+        }
+    }
+
+    /**
+     * Adds the line unless a line with the same key was added less than the rate limit of the key ago.
+     */
+    public static synchronized void addLine(Severity severity, String key, String line){
+        if (isAllowed(key)) {
+            addLine(severity, line);
+        }
+    }
+
+    /**
+     * Sets the shortest time between lines of the given key, 0 to remove the limit.
+     */
+    public static synchronized void setRateLimit(String key, long intervalMs){
+        int i = indexOfLimit(key);
+        if (i < 0) {
+            if (limits == MAX_RATE_LIMITS) {
+                throw new IllegalStateException("Too many rate limited status keys");
+            }
+            i = limits++;
+            limitKeys[i] = key;
+            limitLastNs[i] = Long.MIN_VALUE;
+        }
+        limitIntervalNs[i] = intervalMs * 1000000;
+    }
+
+    /**
+     * Lines below this severity are not kept.
+     */
+    public static synchronized void setMinSeverity(Severity severity){
+        minSeverity = severity;
     }
-    public static String getStatusLine(){
+
+    public static synchronized String getStatusLine(){
+        if (changed) {
+            text.setLength(0);
+            for (int i = 0; i < size; i++) {
+                Entry entry = entries[(first + i) % CAPACITY];
+                text.append('\n');
+                if (entry.severity == Severity.WARNING || entry.severity == Severity.ERROR) {
+                    text.append(entry.severity).append(": ");
+                }
+                text.append(entry.text);
+                if (entry.hasValue) {
+                    text.append(": ").append(entry.value);
+                }
+            }
+            statusLine = text.toString();
+            changed = false;
+        }
         return statusLine;
     }
 
+    /**
+     * @return The entry for a new line, reusing the oldest one when full, or null if the severity is too low.
+     */
+    private static Entry add(Severity severity){
+        if (severity.compareTo(minSeverity) < 0) {
+            return null;
+        }
+        Entry entry;
+        if (size < CAPACITY) {
+            entry = entries[(first + size) % CAPACITY];
+            size++;
+        }
+        else {
+            entry = entries[first];
+            first = (first + 1) % CAPACITY;
+        }
+        entry.severity = severity;
+        changed = true;
+        return entry;
+    }
+
+    private static boolean isAllowed(String key){
+        int i = indexOfLimit(key);
+        if (i < 0) {
+            return true;
+        }
+        long now = BT_Clock.nanoTime();
+        if (limitLastNs[i] != Long.MIN_VALUE && now - limitLastNs[i] < limitIntervalNs[i]) {
+            return false;
+        }
+        limitLastNs[i] = now;
+        return true;
+    }
+
+    private static int indexOfLimit(String key){
+        for (int i = 0; i < limits; i++) {
+            if (limitKeys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,440 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.robotcore.external.Func;
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.robotcore.internal.opmode.TelemetryInternal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Telemetry that sends to the driver station at most maxHz times a second, whatever the loop rate.
+ * addData only keeps the caption and the arguments; the text is formatted when a frame is sent, and
+ * only for items whose arguments changed since the last frame. A frame that renders the same as the
+ * last one sent is not sent at all. The driver station shows whole frames, so a changed frame is
+ * sent in full.
+ *
+ * Wrap the opmode telemetry with it at init:
+ *
+ *   telemetry = new BT_TelemetryPublisher(telemetry, BT_TelemetryPublisher.DRIVER_STATION_HZ);
+ */
+public class BT_TelemetryPublisher implements Telemetry, TelemetryInternal {
+    // Frames a second for the opmodes, fast enough for the drivers and light on the Wi-Fi.
+    public static final double DRIVER_STATION_HZ = 10;
+
+    private class Slot implements Item, Line {
+        private String caption;
+        private String format;
+        private Object[] args;
+        private Object value;
+        private Func<?> producer;
+        private boolean isLine;
+        private boolean retained;
+        // What the last render of a value was made of, and its text. Only values are cached, a line or
+        // a producer never fills the cache.
+        private String renderedFormat;
+        private Object[] renderedArgs;
+        private Object renderedValue;
+        private String renderedText;
+        // Text of the last render, null until the slot is rendered after it was set.
+        private String text;
+        // What was last sent at this position.
+        private String sentCaption;
+        private String sentText;
+
+        void reset(String caption, boolean isLine) {
+            this.caption = caption;
+            this.isLine = isLine;
+            format = null;
+            args = null;
+            value = null;
+            producer = null;
+            retained = false;
+            text = null;
+        }
+
+        String render() {
+            if (isLine) {
+                text = "";
+                return text;
+            }
+            if (producer != null) {
+                Object produced = producer.value();
+                text = format == null ? String.valueOf(produced) : String.format(Locale.US, format, produced);
+                return text;
+            }
+            if (renderedText == null || !same(format, renderedFormat) || !Arrays.equals(args, renderedArgs)
+                    || !same(value, renderedValue)) {
+                renderedText = format == null ? String.valueOf(value) : String.format(Locale.US, format, args);
+                renderedFormat = format;
+                renderedArgs = args;
+                renderedValue = value;
+            }
+            text = renderedText;
+            return text;
+        }
+
+        @Override
+        public String getCaption() {
+            return caption;
+        }
+
+        @Override
+        public Item setCaption(String caption) {
+            this.caption = caption;
+            return this;
+        }
+
+        @Override
+        public Item setValue(String format, Object... args) {
+            this.format = format;
+            this.args = args;
+            value = null;
+            producer = null;
+            text = null;
+            return this;
+        }
+
+        @Override
+        public Item setValue(Object value) {
+            format = null;
+            args = null;
+            this.value = value;
+            producer = null;
+            text = null;
+            return this;
+        }
+
+        @Override
+        public <T> Item setValue(Func<T> valueProducer) {
+            format = null;
+            args = null;
+            value = null;
+            producer = valueProducer;
+            text = null;
+            return this;
+        }
+
+        @Override
+        public <T> Item setValue(String format, Func<T> valueProducer) {
+            this.format = format;
+            args = null;
+            value = null;
+            producer = valueProducer;
+            text = null;
+            return this;
+        }
+
+        @Override
+        public Item setRetained(Boolean retained) {
+            this.retained = retained != null && retained;
+            return this;
+        }
+
+        @Override
+        public boolean isRetained() {
+            return retained;
+        }
+
+        @Override
+        public Item addData(String caption, String format, Object... args) {
+            return BT_TelemetryPublisher.this.addData(caption, format, args);
+        }
+
+        @Override
+        public Item addData(String caption, Object value) {
+            return BT_TelemetryPublisher.this.addData(caption, value);
+        }
+
+        @Override
+        public <T> Item addData(String caption, Func<T> valueProducer) {
+            return BT_TelemetryPublisher.this.addData(caption, valueProducer);
+        }
+
+        @Override
+        public <T> Item addData(String caption, String format, Func<T> valueProducer) {
+            return BT_TelemetryPublisher.this.addData(caption, format, valueProducer);
+        }
+    }
+
+    private final Telemetry telemetry;
+    // The slots are reused from frame to frame, only the first size are in the current frame.
+    private final List<Slot> slots = new ArrayList<Slot>();
+    private final List<Runnable> actions = new ArrayList<Runnable>();
+    private int size = 0;
+    private int sentSize = 0;
+    // Set when the slots were moved, so the positions no longer match what was sent.
+    private boolean reordered = false;
+    private boolean autoClear = true;
+    private boolean clearOnAdd = false;
+    // An update was not sent because of the rate, send it on the next chance.
+    private boolean pending = false;
+    private long periodNs;
+    private long lastSendNs = 0;
+    private boolean sentOnce = false;
+    private int frames = 0;
+
+    /**
+     * @param telemetry The telemetry to send with, usually the opmode telemetry.
+     * @param maxHz The most frames a second to send.
+     */
+    public BT_TelemetryPublisher(Telemetry telemetry, double maxHz) {
+        this.telemetry = telemetry;
+        periodNs = (long) (1e9 / maxHz);
+        // This one limits the rate, the wrapped telemetry sends whatever it is given.
+        telemetry.setMsTransmissionInterval(0);
+        telemetry.setAutoClear(true);
+    }
+
+    /**
+     * @return The number of frames sent to the wrapped telemetry.
+     */
+    public int getFrames() {
+        return frames;
+    }
+
+    @Override
+    public Item addData(String caption, String format, Object... args) {
+        return addSlot(caption, false).setValue(format, args);
+    }
+
+    @Override
+    public Item addData(String caption, Object value) {
+        return addSlot(caption, false).setValue(value);
+    }
+
+    @Override
+    public <T> Item addData(String caption, Func<T> valueProducer) {
+        return addSlot(caption, false).setValue(valueProducer);
+    }
+
+    @Override
+    public <T> Item addData(String caption, String format, Func<T> valueProducer) {
+        return addSlot(caption, false).setValue(format, valueProducer);
+    }
+
+    @Override
+    public Line addLine() {
+        return addSlot("", true);
+    }
+
+    @Override
+    public Line addLine(String lineCaption) {
+        return addSlot(lineCaption, true);
+    }
+
+    @Override
+    public boolean removeItem(Item item) {
+        return removeSlot(item);
+    }
+
+    @Override
+    public boolean removeLine(Line line) {
+        return removeSlot(line);
+    }
+
+    /**
+     * Removes the items of the frame, but the retained ones.
+     */
+    @Override
+    public void clear() {
+        clearOnAdd = false;
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Slot slot = slots.get(i);
+            if (slot.retained) {
+                if (i != kept) {
+                    slots.set(i, slots.get(kept));
+                    slots.set(kept, slot);
+                    reordered = true;
+                }
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    @Override
+    public void clearAll() {
+        clearOnAdd = false;
+        size = 0;
+        telemetry.clearAll();
+    }
+
+    @Override
+    public Object addAction(Runnable action) {
+        actions.add(action);
+        return action;
+    }
+
+    @Override
+    public boolean removeAction(Object token) {
+        return actions.remove(token);
+    }
+
+    /**
+     * Ends the frame and sends it if the rate allows and it changed.
+     *
+     * @return True if the frame was sent.
+     */
+    @Override
+    public boolean update() {
+        clearOnAdd = autoClear;
+        pending = true;
+        return publish();
+    }
+
+    /**
+     * Called by the SDK between the loops, sends the last frame if it is still waiting for the rate.
+     */
+    @Override
+    public boolean tryUpdateIfDirty() {
+        return pending && publish();
+    }
+
+    @Override
+    public void resetTelemetryForOpMode() {
+        size = 0;
+        sentSize = 0;
+        sentOnce = false;
+        pending = false;
+        clearOnAdd = false;
+        actions.clear();
+        if (telemetry instanceof TelemetryInternal) {
+            ((TelemetryInternal) telemetry).resetTelemetryForOpMode();
+        }
+        telemetry.setMsTransmissionInterval(0);
+    }
+
+    @Override
+    public boolean isAutoClear() {
+        return autoClear;
+    }
+
+    @Override
+    public void setAutoClear(boolean autoClear) {
+        this.autoClear = autoClear;
+    }
+
+    @Override
+    public int getMsTransmissionInterval() {
+        return (int) (periodNs / 1000000);
+    }
+
+    /**
+     * Sets the shortest time between two frames.
+     */
+    @Override
+    public void setMsTransmissionInterval(int msTransmissionInterval) {
+        periodNs = msTransmissionInterval * 1000000L;
+    }
+
+    @Override
+    public String getItemSeparator() {
+        return telemetry.getItemSeparator();
+    }
+
+    @Override
+    public void setItemSeparator(String itemSeparator) {
+        telemetry.setItemSeparator(itemSeparator);
+    }
+
+    @Override
+    public String getCaptionValueSeparator() {
+        return telemetry.getCaptionValueSeparator();
+    }
+
+    @Override
+    public void setCaptionValueSeparator(String captionValueSeparator) {
+        telemetry.setCaptionValueSeparator(captionValueSeparator);
+    }
+
+    /**
+     * The log is sent by the wrapped telemetry as soon as it changes, like before.
+     */
+    @Override
+    public Log log() {
+        return telemetry.log();
+    }
+
+    private Slot addSlot(String caption, boolean isLine) {
+        if (clearOnAdd) {
+            clear();
+        }
+        Slot slot;
+        if (size < slots.size()) {
+            slot = slots.get(size);
+        }
+        else {
+            slot = new Slot();
+            slots.add(slot);
+        }
+        size++;
+        slot.reset(caption, isLine);
+        return slot;
+    }
+
+    private boolean removeSlot(Object item) {
+        for (int i = 0; i < size; i++) {
+            Slot slot = slots.get(i);
+            if (slot == item) {
+                slots.remove(i);
+                slots.add(slot);
+                size--;
+                reordered = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean publish() {
+        long now = BT_Clock.nanoTime();
+        if (sentOnce && now - lastSendNs < periodNs) {
+            return false;
+        }
+        pending = false;
+        for (Runnable action : actions) {
+            action.run();
+        }
+        boolean changed = reordered || !sentOnce || size != sentSize;
+        for (int i = 0; i < size; i++) {
+            Slot slot = slots.get(i);
+            String text = slot.render();
+            if (!same(slot.caption, slot.sentCaption) || !text.equals(slot.sentText)) {
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return false;
+        }
+
+        telemetry.clear();
+        for (int i = 0; i < size; i++) {
+            Slot slot = slots.get(i);
+            if (slot.isLine) {
+                telemetry.addLine(slot.caption);
+            }
+            else {
+                telemetry.addData(slot.caption, slot.text);
+            }
+            slot.sentCaption = slot.caption;
+            slot.sentText = slot.text;
+        }
+        telemetry.update();
+        sentSize = size;
+        reordered = false;
+        sentOnce = true;
+        lastSendNs = now;
+        frames++;
+        return true;
+    }
+
+    private static boolean same(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -50,15 +50,32 @@ import com.qualcomm.robotcore.util.ElapsedTime;
 @TeleOp(name="BT_Teleop", group="Teleop")
 public class BT_Teleop extends OpMode {
     // Declare OpMode members.
-    private ElapsedTime runtime = new ElapsedTime();
+    private ElapsedTime runtime = new BT_Timer();
     private BT_Hardware robot = new BT_Hardware();
+    // Snapshots of gamepad1 and gamepad2, taken once per loop.
+    private BT_GamepadInput driver = new BT_GamepadInput();
+    private BT_GamepadInput operator = new BT_GamepadInput();
+    // Loop sections timed by the profiler.
+    private static final int DRIVE = 0;
+    private static final int GLYPHS = 1;
+    private static final int INTAKE = 2;
+    private static final int INPUT = 3;
+    private static final int WRITES = 4;
+    private BT_LoopProfiler profiler = new BT_LoopProfiler("drive", "glyphs", "intake", "input", "writes");
 
     /*
      * Code to run ONCE when the driver hits INIT
      */
     @Override
     public void init() {
+        telemetry = new BT_TelemetryPublisher(telemetry, BT_TelemetryPublisher.DRIVER_STATION_HZ);
         robot.init(hardwareMap, this);
+        driver.subscribe(BT_GamepadInput.Button.Y, BT_GamepadInput.Event.PRESSED, new Runnable() {
+            @Override
+            public void run() {
+                robot.jewels.armUp();
+            }
+        });
         telemetry.addData("Status", "Robot Initialized");
         telemetry.update();
     }
@@ -76,6 +93,8 @@ public class BT_Teleop extends OpMode {
     @Override
     public void start() {
         runtime.reset();
+        robot.start();
+        profiler.reset();
         telemetry.setAutoClear(true);
     }
 
@@ -84,19 +103,30 @@ public class BT_Teleop extends OpMode {
      */
     @Override
     public void loop() {
+        profiler.startLoop();
         BT_Status.cleanStatus();
-        robot.drive.teleopDrive(gamepad1,telemetry);
-        robot.glyphs.teleopMotion(gamepad2,telemetry);
-        robot.intake.teleopMotion(gamepad1,telemetry);
-        boolean jewelsUp = gamepad1.y;
-        if (jewelsUp){
-            robot.jewels.armUp();
-        }
+        robot.startCycle();
+        // The jewel arm goes up from the driver subscription.
+        driver.update(gamepad1);
+        operator.update(gamepad2);
+        profiler.mark(INPUT);
+        robot.drive.teleopDrive(driver,telemetry);
+        profiler.mark(DRIVE);
+        robot.glyphs.teleopMotion(operator,telemetry);
+        profiler.mark(GLYPHS);
+        robot.intake.teleopMotion(driver,telemetry);
+        profiler.mark(INTAKE);
+        robot.endCycle();
+        profiler.mark(WRITES);
         telemetry.addData("status", BT_Status.getStatusLine());
+        telemetry.addData("Status", "Run Time: %.1f s", runtime.seconds());
+        telemetry.addData("hw reads/loop", robot.sensors.getLastCycleReads());
+        telemetry.addData("hw writes/loop", robot.commands.getLastCycleWrites());
+        telemetry.addData("imu", "%.0f Hz, %.0f ms old", robot.drive.gyro.getSampleRate(),
+                robot.drive.gyro.getDataAgeMs());
+        profiler.report(telemetry);
         telemetry.update();
-
-        telemetry.addData("Status", "Run Time: " + runtime.toString());
-        telemetry.update();
+        profiler.endLoop();
     }
 
     /*
@@ -104,5 +134,7 @@ public class BT_Teleop extends OpMode {
      */
     @Override
     public void stop() {
+        robot.stop();
+        profiler.dump();
     }
 }
@@ -61,32 +61,55 @@ public class BT_Test4cubesRedLeft extends BT_AutoRedLeft2cudes {
     }
 
     @Override
-    public void put2Cubes() {
-        super.put2Cubes();
-        robot.intake.glyphsIn();
-        robot.drive.move(90, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry, 0.8);
-        robot.drive.move(90, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry, 0.3);
-        sleep(500);
-        robot.drive.move(140, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry,1);
-        robot.intake.stop();
-        robot.glyphs.autoArmHigh();
-        sleep(200);
-        robot.drive.turn(87, 2500, telemetry, true);
-        sleep(100);
-        robot.drive.move(11, BT_MecanumDrive.DriveDirection.RIGHT, 2500, telemetry, 0.2);
-        robot.glyphs.autoArmHigh();
-        sleep(200);
-        robot.drive.move(CRYPTO_DIST+13, BT_MecanumDrive.DriveDirection.BACKWARD, 2500, telemetry);
-        robot.glyphs.releaseGlyphs();
-        sleep(300);
-        robot.drive.move(25, BT_MecanumDrive.DriveDirection.FORWARD, 2500, telemetry,0.9);
-        robot.glyphs.armDown(true);
-        sleep(300);
-
-
+    public BT_Action put2CubesAction() {
+        return BT_Action.sequence(
+                super.put2CubesAction(),
+                new BT_Action() {
+                    @Override
+                    public void start() {
+                        robot.intake.glyphsIn();
+                    }
+                },
+                robot.drive.followPathAction(5000, telemetry,
+                        cryptoPoint(125 - CRYPTO_DIST, 0, 90, 0.8), cryptoPoint(215 - CRYPTO_DIST, 0, 90, 0.3)),
+                BT_Action.waitMs(500),
+                robot.drive.followPathAction(2500, telemetry, cryptoPoint(75 - CRYPTO_DIST, 0, 90, 1)),
+                new BT_Action() {
+                    @Override
+                    public void start() {
+                        robot.intake.stop();
+                    }
+                },
+                // Lift the glyphs while lining up with the cryptobox.
+                together(
+                        BT_Action.sequence(
+                                robot.glyphs.armHighAction(),
+                                BT_Action.waitMs(200)),
+                        // Turns and slides over at the same time.
+                        robot.drive.followPathAction(2500, telemetry, cryptoPoint(75 - CRYPTO_DIST, 11, 87, 0.2))),
+                robot.glyphs.armHighAction(),
+                BT_Action.waitMs(200),
+                robot.drive.followPathAction(2500, telemetry,
+                        cryptoPoint(62 - 2 * CRYPTO_DIST, 11, 87, BT_MecanumDrive.AUTO_DRIVE_SPEED)),
+                new BT_Action() {
+                    @Override
+                    public void start() {
+                        robot.glyphs.releaseGlyphs();
+                    }
+                },
+                BT_Action.waitMs(300),
+                robot.drive.followPathAction(2500, telemetry, cryptoPoint(87 - 2 * CRYPTO_DIST, 11, 87, 0.9)),
+                new BT_Action() {
+                    @Override
+                    public void start() {
+                        robot.glyphs.armDown(true);
+                    }
+                },
+                BT_Action.waitMs(300));
     }
 
 
+
 //    @Override
 //public void runOpMode() {
 //    initAutoConstants();
@@ -0,0 +1,21 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.ElapsedTime;
+
+/**
+ * This is NOT an opmode.
+ *
+ * ElapsedTime that runs on {@link BT_Clock}, so it follows the simulated time in simulation.
+ */
+public class BT_Timer extends ElapsedTime {
+
+    /* Constructor */
+    public BT_Timer() {
+        super();
+    }
+
+    @Override
+    protected long nsNow() {
+        return BT_Clock.nanoTime();
+    }
+}
@@ -0,0 +1,196 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is NOT an opmode.
+ *
+ * The {@link BT_ProfileTable}s of the moves of a routine, so the moves are planned once, at init or
+ * on an earlier run, and are only looked up while driving. A move within DISTANCE_TOLERANCE of a
+ * table uses it, read scaled to the move.
+ *
+ * The tables are saved to a binary file and memory mapped back when loaded, so loading reads the
+ * index and leaves the samples on disk until they are used. The file is little endian:
+ *
+ *   int MAGIC, int VERSION, double maxAcceleration, double jerkTimeS, double SAMPLE_S, int count,
+ *   count times: double distance, double maxVelocity, int shape, int offset, int bytes,
+ *   then the samples of every table at its offset from the start of the file.
+ */
+public class BT_TrajectoryCache {
+    static final int MAGIC = 0x42545443;
+    static final int VERSION = 1;
+    static final double DISTANCE_TOLERANCE = 0.02;
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4;
+    static final int INDEX_BYTES = 8 + 8 + 4 + 4 + 4;
+
+    private final double maxAcceleration;
+    private final double jerkTimeS;
+    private final List<BT_ProfileTable> tables = new ArrayList<BT_ProfileTable>();
+    // Set when a table was sampled since the last load or save.
+    private boolean changed = false;
+
+    /**
+     * @param maxAcceleration The acceleration of every profile.
+     * @param jerkTimeS The jerk time of the S_CURVE profiles.
+     */
+    public BT_TrajectoryCache(double maxAcceleration, double jerkTimeS) {
+        this.maxAcceleration = maxAcceleration;
+        this.jerkTimeS = jerkTimeS;
+    }
+
+    /**
+     * @return The closest table to the move, sampled now if no table is within DISTANCE_TOLERANCE.
+     */
+    public BT_ProfileTable get(double distance, double maxVelocity, BT_MotionProfile.Shape shape) {
+        BT_ProfileTable best = null;
+        for (int i = 0; i < tables.size(); i++) {
+            BT_ProfileTable table = tables.get(i);
+            double off = Math.abs(table.distance - distance);
+            if (table.maxVelocity == maxVelocity && table.shape == shape
+                    && Math.signum(table.distance) == Math.signum(distance)
+                    && off <= DISTANCE_TOLERANCE * Math.abs(distance)
+                    && (best == null || off < Math.abs(best.distance - distance))) {
+                best = table;
+            }
+        }
+        if (best == null) {
+            best = new BT_ProfileTable(new BT_MotionProfile(distance, maxVelocity, maxAcceleration, shape, jerkTimeS),
+                    distance, maxVelocity, shape);
+            tables.add(best);
+            changed = true;
+        }
+        return best;
+    }
+
+    public int size() {
+        return tables.size();
+    }
+
+    /**
+     * @return True if a table was sampled since the last load or save.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Maps the tables saved in the file. A missing file, or one saved with other profile settings,
+     * loads nothing. An index entry that is not whole samples after the index fails the load, so a
+     * bad table is found here and not in the middle of a move.
+     *
+     * @return True if the tables were loaded.
+     */
+    public boolean load(File file) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            // The mapping stays valid after the file is closed.
+            ByteBuffer map = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt() != MAGIC || map.getInt() != VERSION || map.getDouble() != maxAcceleration
+                    || map.getDouble() != jerkTimeS || map.getDouble() != BT_ProfileTable.SAMPLE_S) {
+                return false;
+            }
+            BT_MotionProfile.Shape[] shapes = BT_MotionProfile.Shape.values();
+            int count = map.getInt();
+            if (count < 0 || count > (map.limit() - HEADER_BYTES) / INDEX_BYTES) {
+                throw new IOException("Bad trajectory file " + file + ": " + count + " tables");
+            }
+            int dataStart = HEADER_BYTES + count * INDEX_BYTES;
+            List<BT_ProfileTable> loaded = new ArrayList<BT_ProfileTable>();
+            for (int i = 0; i < count; i++) {
+                double distance = map.getDouble();
+                double maxVelocity = map.getDouble();
+                BT_MotionProfile.Shape shape = shapes[map.getInt()];
+                int offset = map.getInt();
+                int bytes = map.getInt();
+                if (bytes < BT_ProfileTable.BYTES_PER_SAMPLE || bytes % BT_ProfileTable.BYTES_PER_SAMPLE != 0
+                        || offset < dataStart || bytes > map.limit() - offset) {
+                    throw new IOException("Bad trajectory file " + file + ": table " + i + " at " + offset
+                            + " of " + bytes + " bytes");
+                }
+                ByteBuffer samples = map.duplicate();
+                samples.limit(offset + bytes);
+                samples.position(offset);
+                loaded.add(new BT_ProfileTable(samples, distance, maxVelocity, shape));
+            }
+            tables.addAll(loaded);
+            return true;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated trajectory file " + file, e);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Bad trajectory file " + file, e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bad trajectory file " + file, e);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Writes all the tables to the file, through a temporary file so a failed save leaves the old one.
+     * The write is not interruptible, so it also saves from a thread that was interrupted by STOP.
+     */
+    public void save(File file) throws IOException {
+        int dataBytes = 0;
+        for (BT_ProfileTable table : tables) {
+            dataBytes += table.getByteCount();
+        }
+        int offset = HEADER_BYTES + tables.size() * INDEX_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(offset + dataBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putDouble(maxAcceleration);
+        buffer.putDouble(jerkTimeS);
+        buffer.putDouble(BT_ProfileTable.SAMPLE_S);
+        buffer.putInt(tables.size());
+        for (BT_ProfileTable table : tables) {
+            buffer.putDouble(table.distance);
+            buffer.putDouble(table.maxVelocity);
+            buffer.putInt(table.shape.ordinal());
+            buffer.putInt(offset);
+            buffer.putInt(table.getByteCount());
+            offset += table.getByteCount();
+        }
+        for (BT_ProfileTable table : tables) {
+            table.writeTo(buffer);
+        }
+        buffer.flip();
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Can not create " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        boolean saved = false;
+        try {
+            FileOutputStream output = new FileOutputStream(temp);
+            try {
+                // A FileChannel write would throw ClosedByInterruptException on an interrupted thread.
+                output.write(buffer.array(), 0, buffer.limit());
+            } finally {
+                output.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Can not replace " + file);
+            }
+            saved = true;
+        } finally {
+            if (!saved) {
+                temp.delete();
+            }
+        }
+        changed = false;
+    }
+}
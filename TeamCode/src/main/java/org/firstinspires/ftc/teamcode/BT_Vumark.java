@@ -43,6 +43,8 @@ import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackable;
 import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackableDefaultListener;
 import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackables;
 
+import java.util.List;
+
 /**
  * This OpMode illustrates the basics of using the Vuforia engine to determine
  * the identity of Vuforia VuMarks encountered on the field. The code is structured as
@@ -64,11 +66,49 @@ import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackables;
 
 
 public class BT_Vumark  {
+    static final long TRACK_INTERVAL_MS = 50;
+    // Reads the confidence is taken over, one second of tracking.
+    static final int WINDOW = 20;
+    private static final RelicRecoveryVuMark[] COLUMNS = RelicRecoveryVuMark.values();
+
+    /**
+     * The column the VuMark showed, and the part of the last WINDOW reads that agreed with it.
+     */
+    public static class Reading {
+        public RelicRecoveryVuMark vuMark = RelicRecoveryVuMark.UNKNOWN;
+        public double confidence = 0;
+    }
 
     VuforiaLocalizer vuforia;
     VuforiaTrackable relicTemplate;
+    // Read instead of the camera when the hardware map has one.
+    BT_ColumnSource columnSource = null;
+
+    // Last WINDOW reads of the tracker, oldest first from windowNext.
+    private final RelicRecoveryVuMark[] window = new RelicRecoveryVuMark[WINDOW];
+    private final int[] votes = new int[COLUMNS.length];
+    private int windowNext = 0;
+    private RelicRecoveryVuMark lastKnown = RelicRecoveryVuMark.UNKNOWN;
+
+    // Latest reading for other threads. readingSeq is odd while it is being written.
+    private volatile int readingSeq = 0;
+    private volatile RelicRecoveryVuMark readingVuMark = RelicRecoveryVuMark.UNKNOWN;
+    private volatile double readingConfidence = 0;
+
+    private final BT_PeriodicWorker tracker = new BT_PeriodicWorker(
+            "BT_Vumark tracker", TRACK_INTERVAL_MS, new Runnable() {
+                @Override
+                public void run() {
+                    addRead(readVuMark());
+                }
+            });
 
     public BT_Vumark (HardwareMap hardwareMap) {
+        List<BT_ColumnSource> columnSources = hardwareMap.getAll(BT_ColumnSource.class);
+        if (!columnSources.isEmpty()) {
+            columnSource = columnSources.get(0);
+            return;
+        }
         int cameraMonitorViewId = hardwareMap.appContext.getResources().getIdentifier("cameraMonitorViewId", "id", hardwareMap.appContext.getPackageName());
         VuforiaLocalizer.Parameters parameters = new VuforiaLocalizer.Parameters(cameraMonitorViewId);
 
@@ -95,7 +135,91 @@ public class BT_Vumark  {
         relicTrackables.activate();
      }
 
+    /**
+     * Gets the column. While tracking this is the latest reading and never blocks,
+     * otherwise the camera is read.
+     */
     public RelicRecoveryVuMark getVuMark() {
+        if (tracker.isRunning()) {
+            return readingVuMark;
+        }
+        return readVuMark();
+    }
+
+    /**
+     * Copies the latest reading of the tracker, it never blocks.
+     */
+    public void getReading(Reading reading) {
+        int seq;
+        do {
+            seq = readingSeq;
+            reading.vuMark = readingVuMark;
+            reading.confidence = readingConfidence;
+        } while ((seq & 1) != 0 || seq != readingSeq);
+    }
+
+    /**
+     * Reads the column the camera sees now, UNKNOWN if it sees no VuMark.
+     */
+    public RelicRecoveryVuMark readVuMark() {
+        if (columnSource != null) {
+            return columnSource.getVuMark();
+        }
         return RelicRecoveryVuMark.from(relicTemplate);
     }
+
+    /**
+     * Starts reading the camera every TRACK_INTERVAL_MS on a background thread, from init so the
+     * column is known by PLAY. Must be matched by stopTracking() when the opmode ends.
+     */
+    public synchronized void startTracking() {
+        if (tracker.isRunning()) {
+            return;
+        }
+        for (int i = 0; i < WINDOW; i++) {
+            window[i] = RelicRecoveryVuMark.UNKNOWN;
+        }
+        for (int i = 0; i < votes.length; i++) {
+            votes[i] = 0;
+        }
+        votes[RelicRecoveryVuMark.UNKNOWN.ordinal()] = WINDOW;
+        windowNext = 0;
+        lastKnown = RelicRecoveryVuMark.UNKNOWN;
+        tracker.start();
+    }
+
+    public void stopTracking() {
+        tracker.stop();
+    }
+
+    public boolean isTracking() {
+        return tracker.isRunning();
+    }
+
+    /**
+     * Adds a read to the window and publishes the column most of the window saw. When the window
+     * saw no VuMark the last column seen is kept, with no confidence.
+     */
+    private void addRead(RelicRecoveryVuMark vuMark) {
+        votes[window[windowNext].ordinal()]--;
+        window[windowNext] = vuMark;
+        votes[vuMark.ordinal()]++;
+        windowNext = (windowNext + 1) % WINDOW;
+
+        RelicRecoveryVuMark best = RelicRecoveryVuMark.UNKNOWN;
+        for (RelicRecoveryVuMark column : COLUMNS) {
+            if (column != RelicRecoveryVuMark.UNKNOWN && votes[column.ordinal()] > 0
+                    && (best == RelicRecoveryVuMark.UNKNOWN || votes[column.ordinal()] > votes[best.ordinal()])) {
+                best = column;
+            }
+        }
+        if (best != RelicRecoveryVuMark.UNKNOWN) {
+            lastKnown = best;
+        }
+
+        readingSeq++;
+        readingVuMark = lastKnown;
+        readingConfidence = best == RelicRecoveryVuMark.UNKNOWN ? 0 : (double) votes[best.ordinal()] / WINDOW;
+        readingSeq++;
+    }
 }
@@ -0,0 +1,153 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.Range;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Wheel velocities of the mecanum drive from its encoders, and which wheels are slipping.
+ * update takes the four encoder positions, which the drive loop already read, differentiates
+ * them against {@link BT_Clock} and low passes them with VELOCITY_TAU_S. setExpected gives what
+ * the wheels should do, from the powers of {@link BT_MecanumDrive#motionToWheels} or the profile
+ * of a move, and it is lagged by the motor time constant like the motors themselves.
+ *
+ * The expected velocities are first scaled to the measured ones as a whole, within MIN_SCALE and
+ * MAX_SCALE, so a low battery or a push on the robot is not slip. A wheel then slips when it is
+ * off its expected velocity by more than SLIP_TOLERANCE_TPS and SLIP_FRACTION of it for
+ * SLIP_CONFIRM_MS. The wheels are in the order front left, front right, rear left, rear right.
+ *
+ * update is called from one thread and does not allocate. getSlipMask never blocks, for the
+ * odometry thread.
+ */
+public class BT_WheelVelocity {
+    static final double VELOCITY_TAU_S = 0.03;
+    static final double EXPECTED_TAU_S = BT_MecanumDrive.MOTOR_TAU_S;
+    static final double SLIP_TOLERANCE_TPS = 150;
+    static final double SLIP_FRACTION = 0.25;
+    static final double SLIP_CONFIRM_MS = 60;
+    static final double MIN_SCALE = 0.5;
+    static final double MAX_SCALE = 1.2;
+
+    private final int[] lastPositions = new int[4];
+    private final double[] velocities = new double[4];
+    private final double[] commanded = new double[4];
+    private final double[] expected = new double[4];
+    private final boolean[] off = new boolean[4];
+    private final long[] offSinceNs = new long[4];
+    private boolean started = false;
+    private boolean hasExpected = false;
+    private long lastNs = 0;
+
+    // Bit i is set while wheel i slips.
+    private volatile int slipMask = 0;
+
+    /* Constructor */
+    public BT_WheelVelocity() {
+    }
+
+    /**
+     * Takes the next update as the base of the velocities, for when the encoders were reset.
+     */
+    public void reset() {
+        started = false;
+    }
+
+    /**
+     * Sets the velocities the wheels should have, in encoder ticks per second.
+     */
+    public void setExpected(double frontLeft, double frontRight, double rearLeft, double rearRight) {
+        commanded[0] = frontLeft;
+        commanded[1] = frontRight;
+        commanded[2] = rearLeft;
+        commanded[3] = rearRight;
+        hasExpected = true;
+    }
+
+    /**
+     * Stops looking for slip, for when the wheels are driven by something that does not say
+     * what they should do.
+     */
+    public void clearExpected() {
+        hasExpected = false;
+        for (int i = 0; i < 4; i++) {
+            expected[i] = velocities[i];
+            off[i] = false;
+        }
+        slipMask = 0;
+    }
+
+    /**
+     * Adds the encoder positions read now and looks for slip.
+     */
+    public void update(int[] positions) {
+        long now = BT_Clock.nanoTime();
+        if (!started || now <= lastNs) {
+            for (int i = 0; i < 4; i++) {
+                lastPositions[i] = positions[i];
+            }
+            started = true;
+            lastNs = now;
+            return;
+        }
+        double dt = (now - lastNs) / 1e9;
+        double alpha = dt / (VELOCITY_TAU_S + dt);
+        double expectedAlpha = dt / (EXPECTED_TAU_S + dt);
+        double dot = 0;
+        double norm = 0;
+        for (int i = 0; i < 4; i++) {
+            double raw = (positions[i] - lastPositions[i]) / dt;
+            lastPositions[i] = positions[i];
+            velocities[i] += alpha * (raw - velocities[i]);
+            expected[i] += expectedAlpha * (commanded[i] - expected[i]);
+            dot += velocities[i] * expected[i];
+            norm += expected[i] * expected[i];
+        }
+        lastNs = now;
+        if (!hasExpected) {
+            return;
+        }
+
+        double scale = norm > 0 ? Range.clip(dot / norm, MIN_SCALE, MAX_SCALE) : 1;
+        int mask = 0;
+        for (int i = 0; i < 4; i++) {
+            double predicted = scale * expected[i];
+            if (Math.abs(velocities[i] - predicted) <= SLIP_TOLERANCE_TPS + SLIP_FRACTION * Math.abs(predicted)) {
+                off[i] = false;
+                continue;
+            }
+            if (!off[i]) {
+                off[i] = true;
+                offSinceNs[i] = now;
+            }
+            if ((now - offSinceNs[i]) / 1e6 >= SLIP_CONFIRM_MS) {
+                mask |= 1 << i;
+            }
+        }
+        slipMask = mask;
+    }
+
+    /**
+     * @return The filtered velocity of the wheel, in encoder ticks per second.
+     */
+    public double getVelocity(int wheel) {
+        return velocities[wheel];
+    }
+
+    /**
+     * @return The expected velocity of the wheel after the motor lag, in encoder ticks per second.
+     */
+    public double getExpected(int wheel) {
+        return expected[wheel];
+    }
+
+    /**
+     * @return Bit i set for every wheel i that slips.
+     */
+    public int getSlipMask() {
+        return slipMask;
+    }
+
+    public boolean isSlipping() {
+        return slipMask != 0;
+    }
+}
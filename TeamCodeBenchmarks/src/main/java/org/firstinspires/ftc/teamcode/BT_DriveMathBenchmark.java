@@ -0,0 +1,120 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link BT_MecanumDrive} math that runs every teleop loop.
+ * getError reads the heading from the sensor snapshot, as it does after the first read of a loop.
+ * slewLimit runs the teleop drive.slewLimit on a clock that steps 1 ms per call, as at a 1 kHz
+ * loop, towards a motion that reverses every step so it is never reached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BT_DriveMathBenchmark {
+    /**
+     * Clock of the slew limiters, it only moves when the benchmark steps it.
+     */
+    static class StepClock implements BT_Clock.Source {
+        long nowNs = 0;
+
+        @Override
+        public long nanoTime() {
+            return nowNs;
+        }
+
+        @Override
+        public void sleep(long milliseconds) {
+            nowNs += milliseconds * 1000000;
+        }
+    }
+
+    // Driving diagonally while turning, in field centric mode.
+    double leftStickX = 0.6;
+    double leftStickY = -0.7;
+    double rightStickX = 0.3;
+    double rightStickY = 0;
+    double rightTrigger = 0;
+    double robotAngle = 37;
+    double targetAngle = 90;
+    double error = 53;
+    long slewStepNs = 1000000;
+
+    BT_MecanumDrive.Motion motion;
+    BT_MecanumDrive.Motion reverseMotion;
+    BT_MecanumDrive.Motion slewTarget;
+    BT_MecanumDrive.Wheels wheels = new BT_MecanumDrive.Wheels();
+    BT_SimHardware sim;
+    BT_MecanumDrive drive;
+    StepClock clock = new StepClock();
+
+    @Setup
+    public void setup() {
+        motion = new BT_MecanumDrive.Motion(0.7, 0.4, 0.1);
+        reverseMotion = new BT_MecanumDrive.Motion(0.7, 0.4 - Math.PI, -0.1);
+        slewTarget = motion;
+        sim = new BT_SimHardware();
+        drive = new BT_MecanumDrive();
+        drive.init(sim, null);
+        drive.sensors.startCycle();
+        drive.getError(targetAngle);
+        // The drive is set up, the slew limiters run on the benchmark clock from here.
+        BT_Clock.setSource(clock);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sim.detach();
+    }
+
+    @Benchmark
+    public BT_MecanumDrive.Motion joystickToMotion() {
+        // It adds status lines, which the teleop clears every loop.
+        BT_Status.cleanStatus();
+        return BT_MecanumDrive.joystickToMotion(leftStickX, leftStickY, rightStickX, rightStickY,
+                rightTrigger, robotAngle);
+    }
+
+    @Benchmark
+    public BT_MecanumDrive.Wheels motionToWheels() {
+        return BT_MecanumDrive.motionToWheels(motion);
+    }
+
+    @Benchmark
+    public BT_MecanumDrive.Wheels motionToWheelsAllocationFree() {
+        BT_MecanumDrive.motionToWheels(motion.vD, motion.thetaD, motion.vTheta, wheels);
+        return wheels;
+    }
+
+    @Benchmark
+    public BT_MecanumDrive.Motion slewLimit() {
+        slewTarget = slewTarget == motion ? reverseMotion : motion;
+        clock.nowNs += slewStepNs;
+        return drive.slewLimit(slewTarget);
+    }
+
+    @Benchmark
+    public double getError() {
+        return drive.getError(targetAngle);
+    }
+
+    @Benchmark
+    public double getSteer() {
+        return drive.getSteer(error, BT_MecanumDrive.P_TURN_COEFF);
+    }
+}
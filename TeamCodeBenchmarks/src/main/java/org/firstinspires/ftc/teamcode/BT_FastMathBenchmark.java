@@ -0,0 +1,86 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link BT_FastMath} tables against Math, alone and in the drive math of
+ * {@link BT_MecanumDrive}. Every pair runs on the same inputs, the Math one first.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BT_FastMathBenchmark {
+    // Driving diagonally while turning, in field centric mode, as in BT_DriveMathBenchmark.
+    double leftStickX = 0.6;
+    double leftStickY = -0.7;
+    double rightStickX = 0.3;
+    double rightStickY = 0;
+    double rightTrigger = 0;
+    double robotAngle = 37;
+    double angle = 2.3;
+    double y = 0.6;
+    double x = -0.7;
+
+    BT_MecanumDrive.Motion motion = new BT_MecanumDrive.Motion(0.7, 0.4, 0.1);
+    BT_MecanumDrive.Wheels wheels = new BT_MecanumDrive.Wheels();
+
+    @Benchmark
+    public double mathSin() {
+        return Math.sin(angle);
+    }
+
+    @Benchmark
+    public double tableSin() {
+        return BT_FastMath.sin(angle);
+    }
+
+    @Benchmark
+    public double mathAtan2() {
+        return Math.atan2(y, x);
+    }
+
+    @Benchmark
+    public double tableAtan2() {
+        return BT_FastMath.atan2(y, x);
+    }
+
+    @Benchmark
+    public BT_MecanumDrive.Wheels motionToWheelsMath() {
+        BT_MecanumDrive.motionToWheels(motion.vD, motion.thetaD, motion.vTheta, wheels, false);
+        return wheels;
+    }
+
+    @Benchmark
+    public BT_MecanumDrive.Wheels motionToWheelsTable() {
+        BT_MecanumDrive.motionToWheels(motion.vD, motion.thetaD, motion.vTheta, wheels, true);
+        return wheels;
+    }
+
+    @Benchmark
+    public BT_MecanumDrive.Motion joystickToMotionMath() {
+        // It adds status lines, which the teleop clears every loop.
+        BT_Status.cleanStatus();
+        return BT_MecanumDrive.joystickToMotion(leftStickX, leftStickY, rightStickX, rightStickY,
+                rightTrigger, robotAngle, false);
+    }
+
+    @Benchmark
+    public BT_MecanumDrive.Motion joystickToMotionTable() {
+        BT_Status.cleanStatus();
+        return BT_MecanumDrive.joystickToMotion(leftStickX, leftStickY, rightStickX, rightStickY,
+                rightTrigger, robotAngle, true);
+    }
+}
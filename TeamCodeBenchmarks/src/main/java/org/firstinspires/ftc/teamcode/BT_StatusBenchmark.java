@@ -0,0 +1,56 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link BT_Status}. One op is a loop of the teleop: the status is cleared and then
+ * the given number of lines is added, and read or not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BT_StatusBenchmark {
+    @Param({"1", "10", "30"})
+    int lines;
+
+    String line = "thetaD 2: 0.7853981633974483";
+    String key = "thetaD 2";
+    double value = 0.7853981633974483;
+
+    @Benchmark
+    public String addLine() {
+        BT_Status.cleanStatus();
+        for (int i = 0; i < lines; i++) {
+            BT_Status.addLine(line);
+        }
+        return BT_Status.getStatusLine();
+    }
+
+    @Benchmark
+    public void addValue() {
+        BT_Status.cleanStatus();
+        for (int i = 0; i < lines; i++) {
+            BT_Status.addValue(key, value);
+        }
+    }
+
+    @Benchmark
+    public String addValueAndRender() {
+        addValue();
+        return BT_Status.getStatusLine();
+    }
+}
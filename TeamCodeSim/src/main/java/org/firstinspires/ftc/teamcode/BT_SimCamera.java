@@ -0,0 +1,51 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.robotcore.external.navigation.RelicRecoveryVuMark;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Simulated camera, part of {@link BT_SimHardware}. There is no Vuforia in the simulation,
+ * {@link BT_Vumark} finds it in the hardware map and reads {@link BT_SimHardware#vuMark} from it.
+ */
+public class BT_SimCamera implements BT_ColumnSource {
+    private final BT_SimHardware sim;
+
+    /* Constructor */
+    public BT_SimCamera(BT_SimHardware sim) {
+        this.sim = sim;
+    }
+
+    @Override
+    public RelicRecoveryVuMark getVuMark() {
+        return sim.vuMark;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated Camera";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulated camera";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
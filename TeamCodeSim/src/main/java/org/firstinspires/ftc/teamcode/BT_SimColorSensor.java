@@ -0,0 +1,72 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.NormalizedColorSensor;
+import com.qualcomm.robotcore.hardware.NormalizedRGBA;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Simulated jewel color sensor, part of {@link BT_SimHardware}.
+ * It sees the jewel of {@link BT_SimHardware#jewelColor} once the jewel arm is down,
+ * and the gray field before that.
+ */
+public class BT_SimColorSensor implements NormalizedColorSensor {
+    // The jewel arm position from which the sensor is next to the jewel.
+    static final double ARM_AT_JEWEL_POS = 0.5;
+
+    private final BT_SimHardware sim;
+    private final BT_SimServo jewelArm;
+
+    /* Constructor */
+    public BT_SimColorSensor(BT_SimHardware sim, BT_SimServo jewelArm) {
+        this.sim = sim;
+        this.jewelArm = jewelArm;
+    }
+
+    @Override
+    public NormalizedRGBA getNormalizedColors() {
+        sim.transaction(BT_SimHardware.I2C_READ_NS);
+        NormalizedRGBA colors = new NormalizedRGBA();
+        colors.red = 0.05f;
+        colors.green = 0.05f;
+        colors.blue = 0.05f;
+        colors.alpha = 0.2f;
+        if (jewelArm.getPosition() >= ARM_AT_JEWEL_POS) {
+            if (sim.jewelColor == BT_Jewels.JewelColor.RED) {
+                colors.red = 0.3f;
+            }
+            else if (sim.jewelColor == BT_Jewels.JewelColor.BLUE) {
+                colors.blue = 0.3f;
+            }
+        }
+        return colors;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated Color Sensor";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulated I2C";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,307 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+import com.qualcomm.robotcore.hardware.Gamepad;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.robotcore.external.navigation.RelicRecoveryVuMark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Simulated robot, to run the opmodes on a plain JVM without a Robot Controller, see {@link BT_SimRunner}.
+ * It is a HardwareMap with simulated motors, servos, color sensor, IMU and camera under the names of the
+ * robot configuration, and it is the {@link BT_Clock} source of the simulated time.
+ *
+ * The simulated time only moves when the opmode thread spends it: its own CPU time, the latency of
+ * every hardware call and its sleeps. So an opmode runs as fast as the JVM can, but sees the same
+ * timing as on the robot. Other threads (the IMU sampler) wait for the simulated time to reach them.
+ */
+public class BT_SimHardware extends HardwareMap implements BT_Clock.Source {
+    // Latency of the hardware calls.
+    static final long LYNX_COMMAND_NS = 2000000;
+    static final long I2C_READ_NS = 7000000;
+    static final long IMU_INIT_NS = 800000000;
+    static final long PHYSICS_STEP_NS = 1000000;
+    // Longest real time to wait for another thread to run at its simulated time.
+    static final long HANDOFF_TIMEOUT_NS = 20000000;
+
+    // Motor speeds, in encoder ticks per second.
+    static final double DRIVE_MAX_TPS = 2700;
+    static final double ARM_MAX_TPS = 2800;
+    // Distance from the robot center to the wheels, for turning.
+    static final double TURN_RADIUS_CM = 25;
+    // Robot travel per wheel encoder tick, as used by BT_MecanumDrive.encoderDrive.
+    static final double CM_PER_TICK = Math.cos(Math.PI / 4) / BT_MecanumDrive.COUNTS_PER_CM;
+
+    public final BT_SimMotor frontLeftDrive = new BT_SimMotor(this, "frontLeftDrive", 0, DRIVE_MAX_TPS);
+    public final BT_SimMotor frontRightDrive = new BT_SimMotor(this, "frontRightDrive", 1, DRIVE_MAX_TPS);
+    public final BT_SimMotor rearLeftDrive = new BT_SimMotor(this, "rearLeftDrive", 2, DRIVE_MAX_TPS);
+    public final BT_SimMotor rearRightDrive = new BT_SimMotor(this, "rearRightDrive", 3, DRIVE_MAX_TPS);
+    public final BT_SimMotor armMotor = new BT_SimMotor(this, "armMotor", 0, ARM_MAX_TPS);
+    public final BT_SimMotor leftIntake = new BT_SimMotor(this, "leftIntake", 1, DRIVE_MAX_TPS);
+    public final BT_SimMotor rightIntake = new BT_SimMotor(this, "rightIntake", 2, DRIVE_MAX_TPS);
+    public final BT_SimMotor intakeMotor = new BT_SimMotor(this, "intakeMotor", 3, DRIVE_MAX_TPS);
+    public final BT_SimServo armServo = new BT_SimServo(this, "armServo", 0);
+    public final BT_SimServo upClampsServo = new BT_SimServo(this, "upClampsServo", 1);
+    public final BT_SimServo downClampsServo = new BT_SimServo(this, "downClampsServo", 2);
+    public final BT_SimServo intakeServo = new BT_SimServo(this, "intakeServo", 3);
+    public final BT_SimServo jewelArm = new BT_SimServo(this, "jewelArm", 4);
+    public final BT_SimServo jewelFinger = new BT_SimServo(this, "jewelFinger", 5);
+    public final BT_SimColorSensor colorSensor = new BT_SimColorSensor(this, jewelArm);
+    public final BT_SimImu imu = new BT_SimImu(this);
+    public final BT_SimCamera camera = new BT_SimCamera(this);
+
+    // What the camera and the color sensor see.
+    public volatile RelicRecoveryVuMark vuMark = RelicRecoveryVuMark.CENTER;
+    public volatile BT_Jewels.JewelColor jewelColor = BT_Jewels.JewelColor.RED;
+    // Robot controller CPU time per CPU time of this JVM, raise it to model the slower phone.
+    public double cpuScale = 1;
+
+    private final BT_SimMotor[] motors = {frontLeftDrive, frontRightDrive, rearLeftDrive, rearRightDrive,
+            armMotor, leftIntake, rightIntake, intakeMotor};
+    // Robot pose on the field: cm from the start, and degrees counter clockwise.
+    private volatile double x = 0;
+    private volatile double y = 0;
+    private volatile double heading = 0;
+    private volatile double turnRate = 0;
+
+    private volatile long nowNs = 0;
+    private volatile long transactions = 0;
+    private long lastWallNs = System.nanoTime();
+    private volatile Thread simThread = null;
+    // Threads waiting for the simulated time, and when they wake up.
+    private final Map<Thread, Long> sleepers = new HashMap<Thread, Long>();
+    private LinearOpMode stopOpMode = null;
+    private long stopAtNs = 0;
+
+    /**
+     * Makes the calling thread the opmode thread, which runs the simulated time, and switches
+     * {@link BT_Clock} to it. Create the opmode after this, so its timers use the simulated time.
+     */
+    public BT_SimHardware() {
+        super(null);
+        simThread = Thread.currentThread();
+        BT_Clock.setSource(this);
+
+        dcMotor.put("frontLeftDrive", frontLeftDrive);
+        dcMotor.put("frontRightDrive", frontRightDrive);
+        dcMotor.put("rearLeftDrive", rearLeftDrive);
+        dcMotor.put("rearRightDrive", rearRightDrive);
+        dcMotor.put("armMotor", armMotor);
+        dcMotor.put("leftIntake", leftIntake);
+        dcMotor.put("rightIntake", rightIntake);
+        dcMotor.put("intakeMotor", intakeMotor);
+        servo.put("armServo", armServo);
+        servo.put("upClampsServo", upClampsServo);
+        servo.put("downClampsServo", downClampsServo);
+        servo.put("intakeServo", intakeServo);
+        servo.put("jewelArm", jewelArm);
+        servo.put("jewelFinger", jewelFinger);
+        put("colorSensor", colorSensor);
+        put("imu 1", imu);
+        put("camera", camera);
+    }
+
+    /**
+     * Gives the opmode this hardware, a telemetry and gamepads, like the OpModeManager does.
+     */
+    public BT_SimTelemetry attach(OpMode opMode) {
+        BT_SimTelemetry telemetry = new BT_SimTelemetry();
+        opMode.hardwareMap = this;
+        opMode.telemetry = telemetry;
+        opMode.gamepad1 = new Gamepad();
+        opMode.gamepad2 = new Gamepad();
+        return telemetry;
+    }
+
+    /**
+     * Stops the linear opmode when the simulated time reaches the given time, like the end of
+     * the autonomous period.
+     */
+    public synchronized void stopAt(double seconds, LinearOpMode opMode) {
+        stopOpMode = opMode;
+        stopAtNs = nowNs + (long) (seconds * 1e9);
+    }
+
+    /**
+     * Goes back to the system clock. Threads still waiting for the simulated time are interrupted.
+     */
+    public synchronized void detach() {
+        BT_Clock.setSource(null);
+        simThread = null;
+        for (Thread thread : sleepers.keySet()) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public long nanoTime() {
+        if (isSimThread()) {
+            spend(0);
+        }
+        return nowNs;
+    }
+
+    @Override
+    public void sleep(long milliseconds) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (isSimThread()) {
+            spend(milliseconds * 1000000);
+        }
+        else {
+            sleepNs(milliseconds * 1000000);
+        }
+    }
+
+    /**
+     * A call to the hardware that takes the given time. The opmode thread moves the simulated
+     * time, any other thread waits for it.
+     */
+    void transaction(long costNs) {
+        synchronized (this) {
+            transactions++;
+        }
+        if (isSimThread()) {
+            spend(costNs);
+            return;
+        }
+        try {
+            sleepNs(costNs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The number of hardware calls so far.
+     */
+    public long getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * @return The robot heading, degrees counter clockwise from the start.
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * @return The robot turn rate, degrees per second counter clockwise.
+     */
+    public double getTurnRate() {
+        return turnRate;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    private boolean isSimThread() {
+        return simThread == null || Thread.currentThread() == simThread;
+    }
+
+    /**
+     * Moves the simulated time by the CPU time used since the last call, and then by costNs.
+     */
+    private void spend(long costNs) {
+        long wallNs = System.nanoTime();
+        advance((long) ((wallNs - lastWallNs) * cpuScale) + costNs);
+        lastWallNs = System.nanoTime();
+    }
+
+    private synchronized void sleepNs(long ns) throws InterruptedException {
+        Thread thread = Thread.currentThread();
+        long wakeNs = nowNs + ns;
+        sleepers.put(thread, wakeNs);
+        try {
+            while (nowNs < wakeNs) {
+                wait();
+            }
+        }
+        finally {
+            sleepers.remove(thread);
+            notifyAll();
+        }
+    }
+
+    private synchronized void advance(long ns) {
+        long endNs = nowNs + ns;
+        while (nowNs < endNs) {
+            long stepNs = Math.min(PHYSICS_STEP_NS, endNs - nowNs);
+            step(stepNs / 1e9);
+            nowNs += stepNs;
+            handOff();
+        }
+        if (stopOpMode != null && nowNs >= stopAtNs) {
+            LinearOpMode opMode = stopOpMode;
+            stopOpMode = null;
+            opMode.stop();
+        }
+    }
+
+    /**
+     * Lets the threads that are due now run before the time moves on.
+     */
+    private void handOff() {
+        if (!hasDueSleeper()) {
+            return;
+        }
+        notifyAll();
+        long deadlineNs = System.nanoTime() + HANDOFF_TIMEOUT_NS;
+        try {
+            while (hasDueSleeper() && System.nanoTime() < deadlineNs) {
+                wait(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean hasDueSleeper() {
+        for (long wakeNs : sleepers.values()) {
+            if (wakeNs <= nowNs) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the motors and the robot by dt seconds.
+     */
+    private void step(double dt) {
+        for (BT_SimMotor motor : motors) {
+            motor.step(dt);
+        }
+        double frontLeft = frontLeftDrive.getVelocity();
+        double frontRight = frontRightDrive.getVelocity();
+        double rearLeft = rearLeftDrive.getVelocity();
+        double rearRight = rearRightDrive.getVelocity();
+
+        // Same wheel directions as BT_MecanumDrive.startEncoderDrive.
+        double forward = (frontLeft + frontRight + rearLeft + rearRight) / 4 * CM_PER_TICK;
+        double right = (-frontLeft + frontRight + rearLeft - rearRight) / 4 * CM_PER_TICK;
+        double turn = (-frontLeft + frontRight - rearLeft + rearRight) / 4 * CM_PER_TICK / TURN_RADIUS_CM;
+
+        double rad = Math.toRadians(heading);
+        x += (forward * Math.cos(rad) + right * Math.sin(rad)) * dt;
+        y += (forward * Math.sin(rad) - right * Math.cos(rad)) * dt;
+        turnRate = Math.toDegrees(turn);
+        double newHeading = heading + turnRate * dt;
+        while (newHeading > 180) newHeading -= 360;
+        while (newHeading <= -180) newHeading += 360;
+        heading = newHeading;
+    }
+}
@@ -0,0 +1,222 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.bosch.BNO055IMU;
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+
+import org.firstinspires.ftc.robotcore.external.navigation.Acceleration;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.MagneticFlux;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.robotcore.external.navigation.Position;
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.firstinspires.ftc.robotcore.external.navigation.Temperature;
+import org.firstinspires.ftc.robotcore.external.navigation.Velocity;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Simulated BNO055 IMU, part of {@link BT_SimHardware}. It reports the simulated robot heading
+ * as the first (Z) angle, counter clockwise positive, and is zeroed by initialize like the real one.
+ * Every read is an I2C transaction and costs simulated time.
+ */
+public class BT_SimImu implements BNO055IMU, HardwareDevice {
+    private final BT_SimHardware sim;
+    private Parameters parameters = new Parameters();
+    // Robot heading when the IMU was initialized, in degrees.
+    private volatile double headingOffset = 0;
+    private volatile boolean initialized = false;
+
+    /* Constructor */
+    public BT_SimImu(BT_SimHardware sim) {
+        this.sim = sim;
+    }
+
+    @Override
+    public boolean initialize(Parameters parameters) {
+        sim.transaction(BT_SimHardware.IMU_INIT_NS);
+        this.parameters = parameters.clone();
+        headingOffset = sim.getHeading();
+        initialized = true;
+        return true;
+    }
+
+    @Override
+    public Parameters getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public Orientation getAngularOrientation() {
+        // AngleUnit in here is the BNO055IMU one, the navigation one has to be written in full.
+        return getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, parameters.angleUnit == AngleUnit.RADIANS
+                ? org.firstinspires.ftc.robotcore.external.navigation.AngleUnit.RADIANS
+                : org.firstinspires.ftc.robotcore.external.navigation.AngleUnit.DEGREES);
+    }
+
+    @Override
+    public Orientation getAngularOrientation(AxesReference reference, AxesOrder order,
+                                             org.firstinspires.ftc.robotcore.external.navigation.AngleUnit angleUnit) {
+        sim.transaction(BT_SimHardware.I2C_READ_NS);
+        double heading = org.firstinspires.ftc.robotcore.external.navigation.AngleUnit.normalizeDegrees(sim.getHeading() - headingOffset);
+        return new Orientation(reference, order, angleUnit, (float) angleUnit.fromDegrees(heading), 0, 0,
+                sim.nanoTime());
+    }
+
+    @Override
+    public Acceleration getOverallAcceleration() {
+        return getGravity();
+    }
+
+    @Override
+    public AngularVelocity getAngularVelocity() {
+        sim.transaction(BT_SimHardware.I2C_READ_NS);
+        return new AngularVelocity(org.firstinspires.ftc.robotcore.external.navigation.AngleUnit.DEGREES, 0, 0,
+                (float) sim.getTurnRate(), sim.nanoTime());
+    }
+
+    @Override
+    public Acceleration getLinearAcceleration() {
+        sim.transaction(BT_SimHardware.I2C_READ_NS);
+        return new Acceleration(DistanceUnit.METER, 0, 0, 0, sim.nanoTime());
+    }
+
+    @Override
+    public Acceleration getGravity() {
+        sim.transaction(BT_SimHardware.I2C_READ_NS);
+        return new Acceleration(DistanceUnit.METER, 0, 0, 9.81, sim.nanoTime());
+    }
+
+    @Override
+    public Temperature getTemperature() {
+        return new Temperature();
+    }
+
+    @Override
+    public MagneticFlux getMagneticFieldStrength() {
+        return new MagneticFlux();
+    }
+
+    @Override
+    public Quaternion getQuaternionOrientation() {
+        sim.transaction(BT_SimHardware.I2C_READ_NS);
+        double halfAngle = Math.toRadians(sim.getHeading() - headingOffset) / 2;
+        return new Quaternion((float) Math.cos(halfAngle), 0, 0, (float) Math.sin(halfAngle), sim.nanoTime());
+    }
+
+    @Override
+    public Position getPosition() {
+        return new Position();
+    }
+
+    @Override
+    public Velocity getVelocity() {
+        return new Velocity();
+    }
+
+    @Override
+    public Acceleration getAcceleration() {
+        return new Acceleration();
+    }
+
+    @Override
+    public void startAccelerationIntegration(Position initalPosition, Velocity initialVelocity, int msPollInterval) {
+    }
+
+    @Override
+    public void stopAccelerationIntegration() {
+    }
+
+    @Override
+    public SystemStatus getSystemStatus() {
+        return initialized ? SystemStatus.RUNNING_FUSION : SystemStatus.IDLE;
+    }
+
+    @Override
+    public SystemError getSystemError() {
+        return SystemError.NO_ERROR;
+    }
+
+    @Override
+    public CalibrationStatus getCalibrationStatus() {
+        return new CalibrationStatus(0xFF);
+    }
+
+    @Override
+    public boolean isSystemCalibrated() {
+        return true;
+    }
+
+    @Override
+    public boolean isGyroCalibrated() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccelerometerCalibrated() {
+        return true;
+    }
+
+    @Override
+    public boolean isMagnetometerCalibrated() {
+        return true;
+    }
+
+    @Override
+    public CalibrationData readCalibrationData() {
+        return new CalibrationData();
+    }
+
+    @Override
+    public void writeCalibrationData(CalibrationData data) {
+    }
+
+    @Override
+    public byte read8(Register register) {
+        return 0;
+    }
+
+    @Override
+    public byte[] read(Register register, int cb) {
+        return new byte[cb];
+    }
+
+    @Override
+    public void write8(Register register, int bVal) {
+    }
+
+    @Override
+    public void write(Register register, byte[] data) {
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated BNO055 IMU";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulated I2C";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+    }
+
+    @Override
+    public void close() {
+        initialized = false;
+    }
+}
@@ -0,0 +1,220 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.configuration.MotorConfigurationType;
+import com.qualcomm.robotcore.util.Range;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Simulated DC motor with an encoder, part of {@link BT_SimHardware}.
+ * The speed follows the power with a first order lag, and RUN_TO_POSITION slows down near the
+ * target like the REV hub controller. Every call that talks to the hub costs simulated time.
+ */
+public class BT_SimMotor implements DcMotor {
+    // Time constant of the speed response, powered and coasting.
+    static final double TAU_S = 0.05;
+    static final double FLOAT_TAU_S = 0.3;
+    // RUN_TO_POSITION slows down inside this distance of the target.
+    static final double SLOW_DOWN_TICKS = 150;
+    // isBusy is false inside this distance of the target.
+    static final int BUSY_TOLERANCE_TICKS = 10;
+
+    private final BT_SimHardware sim;
+    private final String name;
+    private final int port;
+    private final double maxTicksPerSecond;
+
+    private MotorConfigurationType motorType = null;
+    private Direction direction = Direction.FORWARD;
+    private ZeroPowerBehavior zeroPowerBehavior = ZeroPowerBehavior.FLOAT;
+    private RunMode mode = RunMode.RUN_WITHOUT_ENCODER;
+    private double power = 0;
+    private int targetPosition = 0;
+
+    // Motor shaft state, in ticks of the FORWARD direction.
+    private double position = 0;
+    private double velocity = 0;
+
+    /* Constructor */
+    public BT_SimMotor(BT_SimHardware sim, String name, int port, double maxTicksPerSecond) {
+        this.sim = sim;
+        this.name = name;
+        this.port = port;
+        this.maxTicksPerSecond = maxTicksPerSecond;
+    }
+
+    /**
+     * Moves the motor by dt seconds of simulated time.
+     */
+    void step(double dt) {
+        double sign = direction == Direction.FORWARD ? 1 : -1;
+        double command;
+        switch (mode) {
+            case RUN_TO_POSITION:
+                double error = targetPosition - getPosition();
+                command = sign * Math.signum(error) * Math.abs(power) * maxTicksPerSecond *
+                        Math.min(1, Math.abs(error) / SLOW_DOWN_TICKS);
+                break;
+            case STOP_AND_RESET_ENCODER:
+                command = 0;
+                break;
+            default:
+                command = sign * power * maxTicksPerSecond;
+                break;
+        }
+        double tau = (command == 0 && zeroPowerBehavior != ZeroPowerBehavior.BRAKE) ? FLOAT_TAU_S : TAU_S;
+        velocity += (command - velocity) * Math.min(1, dt / tau);
+        position += velocity * dt;
+    }
+
+    /**
+     * @return The encoder position in the motor direction, without the cost of a hub call.
+     */
+    double getPosition() {
+        return direction == Direction.FORWARD ? position : -position;
+    }
+
+    /**
+     * @return The speed in ticks per second in the motor direction, without the cost of a hub call.
+     */
+    double getVelocity() {
+        return direction == Direction.FORWARD ? velocity : -velocity;
+    }
+
+    @Override
+    public MotorConfigurationType getMotorType() {
+        return motorType;
+    }
+
+    @Override
+    public void setMotorType(MotorConfigurationType motorType) {
+        this.motorType = motorType;
+    }
+
+    @Override
+    public DcMotorController getController() {
+        return null;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return port;
+    }
+
+    @Override
+    public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        sim.transaction(BT_SimHardware.LYNX_COMMAND_NS);
+        this.zeroPowerBehavior = zeroPowerBehavior;
+    }
+
+    @Override
+    public ZeroPowerBehavior getZeroPowerBehavior() {
+        return zeroPowerBehavior;
+    }
+
+    @Override
+    @Deprecated
+    public void setPowerFloat() {
+        setZeroPowerBehavior(ZeroPowerBehavior.FLOAT);
+        setPower(0);
+    }
+
+    @Override
+    public boolean getPowerFloat() {
+        return zeroPowerBehavior == ZeroPowerBehavior.FLOAT && power == 0;
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        sim.transaction(BT_SimHardware.LYNX_COMMAND_NS);
+        targetPosition = position;
+    }
+
+    @Override
+    public int getTargetPosition() {
+        return targetPosition;
+    }
+
+    @Override
+    public boolean isBusy() {
+        sim.transaction(BT_SimHardware.LYNX_COMMAND_NS);
+        return mode == RunMode.RUN_TO_POSITION && power != 0 &&
+                Math.abs(targetPosition - getPosition()) > BUSY_TOLERANCE_TICKS;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        sim.transaction(BT_SimHardware.LYNX_COMMAND_NS);
+        return (int) Math.round(getPosition());
+    }
+
+    @Override
+    public void setMode(RunMode mode) {
+        sim.transaction(BT_SimHardware.LYNX_COMMAND_NS);
+        if (mode == RunMode.STOP_AND_RESET_ENCODER) {
+            position = 0;
+            velocity = 0;
+            power = 0;
+        }
+        this.mode = mode;
+    }
+
+    @Override
+    public RunMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public void setPower(double power) {
+        sim.transaction(BT_SimHardware.LYNX_COMMAND_NS);
+        this.power = Range.clip(power, -1, 1);
+    }
+
+    @Override
+    public double getPower() {
+        sim.transaction(BT_SimHardware.LYNX_COMMAND_NS);
+        return power;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated Motor";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulated port " + port + " (" + name + ")";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+        setPower(0);
+    }
+
+    @Override
+    public void close() {
+        power = 0;
+    }
+}
@@ -0,0 +1,261 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Runs BT_Teleop with a scripted driver, a set of turns and an autonomous on {@link BT_SimHardware},
+ * in a plain JVM, and prints the simulated time against the real time and the hardware calls per loop.
+ * The turns are made with both the PIDF turn and the proportional turn it replaced, to compare
+ * the time to heading, and a few moves with and without an encoder reset before each, to compare
+ * the hardware calls. The teleop slew limiter is stepped at SLEW_LOOP_HZ rates, to see it
+ * accelerates the same at every loop rate.
+ * Run it from the TeamCodeSim module:
+ *
+ *   ./gradlew :TeamCodeSim:simRun [-PsimAuto=autonomous class]
+ *
+ * The autonomous is BT_AutoBlueLeft by default.
+ */
+public class BT_SimRunner {
+    static final double TELEOP_SECONDS = 16;
+    // Includes the init, since the runner presses PLAY at once.
+    static final double AUTO_SECONDS = 30;
+    // Each step of the teleop script, in seconds.
+    static final double SCRIPT_STEP_S = 2;
+    static final double[] TURN_TARGETS = {90, -90, 180, 0, 45};
+    static final double TURN_TIMEOUT_MS = 5000;
+    // Time after a turn to see where the robot came to rest.
+    static final long TURN_REST_MS = 500;
+    static final double[] LEG_DISTANCES = {60, 30, 60, 30};
+    static final BT_MecanumDrive.DriveDirection[] LEG_DIRECTIONS = {BT_MecanumDrive.DriveDirection.FORWARD,
+            BT_MecanumDrive.DriveDirection.RIGHT, BT_MecanumDrive.DriveDirection.BACKWARD,
+            BT_MecanumDrive.DriveDirection.LEFT};
+    static final double LEG_TIMEOUT_MS = 2500;
+    static final int[] SLEW_LOOP_HZ = {20, 50, 200, 1000};
+    static final double SLEW_SECONDS = 0.5;
+
+    public static void main(String[] args) throws Exception {
+        runTeleop(TELEOP_SECONDS);
+        runTurns();
+        runLegs();
+        runSlew();
+
+        String autoName = args.length > 0 ? args[0] : BT_AutoBlueLeft.class.getName();
+        runAuto(Class.forName(autoName).asSubclass(BT_AutoSuper.class), AUTO_SECONDS);
+    }
+
+    public static void runTeleop(double seconds) {
+        BT_SimHardware sim = new BT_SimHardware();
+        BT_Teleop teleop = new BT_Teleop();
+        sim.attach(teleop);
+        long wallStartNs = System.nanoTime();
+        long simStartNs = sim.nanoTime();
+
+        teleop.init();
+        teleop.start();
+        long loopStartNs = sim.nanoTime();
+        long loopStartCalls = sim.getTransactions();
+        long loops = 0;
+        double t;
+        while ((t = (sim.nanoTime() - loopStartNs) / 1e9) < seconds) {
+            driverScript(teleop.gamepad1, teleop.gamepad2, t);
+            teleop.loop();
+            loops++;
+        }
+        double loopMs = (sim.nanoTime() - loopStartNs) / 1e6 / loops;
+        double callsPerLoop = (double) (sim.getTransactions() - loopStartCalls) / loops;
+        teleop.stop();
+
+        report("BT_Teleop", sim, simStartNs, wallStartNs);
+        System.out.println(String.format(Locale.US, "  %d loops, %.2f ms/loop, %.1f hw calls/loop",
+                loops, loopMs, callsPerLoop));
+        sim.detach();
+    }
+
+    public static void runAuto(Class<? extends BT_AutoSuper> autoClass, double seconds) throws Exception {
+        BT_SimHardware sim = new BT_SimHardware();
+        BT_AutoSuper auto = autoClass.getDeclaredConstructor().newInstance();
+        BT_AutoSuper.trajectoryDir = new File(System.getProperty("java.io.tmpdir"));
+        sim.attach(auto);
+        long wallStartNs = System.nanoTime();
+        long simStartNs = sim.nanoTime();
+
+        // PLAY is pressed before the opmode runs, so waitForStart returns at once.
+        auto.start();
+        sim.stopAt(seconds, auto);
+        auto.runOpMode();
+
+        report(autoClass.getSimpleName(), sim, simStartNs, wallStartNs);
+        System.out.println("  " + BT_Status.getStatusLine());
+        sim.detach();
+    }
+
+    /**
+     * Makes the TURN_TARGETS turns with turn and with turnProportional, each from where the last one ended.
+     */
+    public static void runTurns() {
+        double[][] pidf = runTurns(false);
+        double[][] proportional = runTurns(true);
+        double pidfTotal = 0;
+        double proportionalTotal = 0;
+        for (int i = 0; i < TURN_TARGETS.length; i++) {
+            System.out.println(String.format(Locale.US,
+                    "  turn to %4.0f deg: pidf %5.0f ms %4.1f deg off, proportional %5.0f ms %4.1f deg off",
+                    TURN_TARGETS[i], pidf[i][0], pidf[i][1], proportional[i][0], proportional[i][1]));
+            pidfTotal += pidf[i][0];
+            proportionalTotal += proportional[i][0];
+        }
+        System.out.println(String.format(Locale.US, "turns: pidf %.0f ms, proportional %.0f ms",
+                pidfTotal, proportionalTotal));
+    }
+
+    /**
+     * @return For every turn, the ms it took and the degrees off the target after TURN_REST_MS.
+     */
+    static double[][] runTurns(boolean proportional) {
+        BT_SimHardware sim = new BT_SimHardware();
+        BT_SimTelemetry telemetry = new BT_SimTelemetry();
+        BT_MecanumDrive drive = new BT_MecanumDrive();
+        drive.init(sim, null);
+        drive.gyro.startSampling();
+        double[][] results = new double[TURN_TARGETS.length][2];
+        for (int i = 0; i < TURN_TARGETS.length; i++) {
+            long startNs = sim.nanoTime();
+            if (proportional) {
+                drive.turnProportional(TURN_TARGETS[i], TURN_TIMEOUT_MS, telemetry, false);
+            }
+            else {
+                drive.turn(TURN_TARGETS[i], TURN_TIMEOUT_MS, telemetry, false);
+            }
+            results[i][0] = (sim.nanoTime() - startNs) / 1e6;
+            BT_Clock.sleep(TURN_REST_MS);
+            double off = TURN_TARGETS[i] - sim.getHeading();
+            while (off > 180) off -= 360;
+            while (off <= -180) off += 360;
+            results[i][1] = Math.abs(off);
+        }
+        drive.gyro.stopSampling();
+        sim.detach();
+        return results;
+    }
+
+    /**
+     * Drives the LEG_DISTANCES moves relative to their start and with an encoder reset before each,
+     * and compares the hardware calls of each leg.
+     */
+    public static void runLegs() {
+        long[][] relative = runLegs(false);
+        long[][] reset = runLegs(true);
+        for (int i = 0; i < LEG_DISTANCES.length; i++) {
+            System.out.println(String.format(Locale.US,
+                    "  %3.0f cm %-8s: relative %2d setup %4d total hw calls, reset %2d setup %4d total",
+                    LEG_DISTANCES[i], LEG_DIRECTIONS[i], relative[i][0], relative[i][1], reset[i][0], reset[i][1]));
+        }
+    }
+
+    /**
+     * @return For every leg, the hardware calls to start it and the hardware calls of the whole leg.
+     */
+    static long[][] runLegs(boolean resetEncoders) {
+        BT_SimHardware sim = new BT_SimHardware();
+        BT_SimTelemetry telemetry = new BT_SimTelemetry();
+        BT_MecanumDrive drive = new BT_MecanumDrive();
+        drive.init(sim, null);
+        drive.resetEncodersPerLeg = resetEncoders;
+        long[][] results = new long[LEG_DISTANCES.length][2];
+        for (int i = 0; i < LEG_DISTANCES.length; i++) {
+            BT_Action leg = drive.moveAction(LEG_DISTANCES[i], LEG_DIRECTIONS[i], LEG_TIMEOUT_MS, telemetry);
+            long startCalls = sim.getTransactions();
+            leg.start();
+            results[i][0] = sim.getTransactions() - startCalls;
+            while (!leg.update()) {
+                telemetry.update();
+            }
+            leg.end(false);
+            results[i][1] = sim.getTransactions() - startCalls;
+        }
+        sim.detach();
+        return results;
+    }
+
+    /**
+     * Steps the forward slew limiter of the drive from standing to full speed at every SLEW_LOOP_HZ
+     * rate on the simulated clock, and prints the speed every 0.1 s and when it got there.
+     */
+    public static void runSlew() {
+        for (int hz : SLEW_LOOP_HZ) {
+            BT_SimHardware sim = new BT_SimHardware();
+            BT_SlewLimiter slew = new BT_SlewLimiter(BT_MecanumDrive.FORWARD_ACCELERATION,
+                    Double.POSITIVE_INFINITY);
+            long periodMs = 1000 / hz;
+            long startNs = sim.nanoTime();
+            double fullS = Double.NaN;
+            StringBuilder speeds = new StringBuilder();
+            slew.calculate(1);
+            for (int step = 1; step <= SLEW_SECONDS * hz; step++) {
+                BT_Clock.sleep(periodMs);
+                double speed = slew.calculate(1);
+                double t = (sim.nanoTime() - startNs) / 1e9;
+                if (step % (hz / 10) == 0) {
+                    speeds.append(String.format(Locale.US, " %.2f", speed));
+                }
+                if (speed >= 1 && Double.isNaN(fullS)) {
+                    fullS = t;
+                }
+            }
+            System.out.println(String.format(Locale.US, "  slew at %4d Hz:%s, full speed at %.3f s",
+                    hz, speeds, fullS));
+            sim.detach();
+        }
+    }
+
+    /**
+     * Sets the gamepads for the time t since PLAY: drive, strafe, turn, turn to the cryptobox,
+     * intake, arm up and arm down.
+     */
+    static void driverScript(Gamepad gamepad1, Gamepad gamepad2, double t) {
+        gamepad1.left_stick_x = 0;
+        gamepad1.left_stick_y = 0;
+        gamepad1.right_stick_x = 0;
+        gamepad1.right_trigger = 0;
+        gamepad1.a = false;
+        gamepad2.left_stick_y = 0;
+        switch ((int) (t / SCRIPT_STEP_S)) {
+            case 0:
+                gamepad1.left_stick_y = -1;
+                break;
+            case 1:
+                gamepad1.left_stick_x = 1;
+                break;
+            case 2:
+                gamepad1.right_stick_x = 0.5f;
+                break;
+            case 3:
+                gamepad1.a = true;
+                break;
+            case 4:
+                gamepad1.right_trigger = 1;
+                break;
+            case 5:
+                gamepad2.left_stick_y = -1;
+                break;
+            case 6:
+                gamepad2.left_stick_y = 1;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void report(String name, BT_SimHardware sim, long simStartNs, long wallStartNs) {
+        double simS = (sim.nanoTime() - simStartNs) / 1e9;
+        double wallS = (System.nanoTime() - wallStartNs) / 1e9;
+        System.out.println(String.format(Locale.US,
+                "%s: %.1f s simulated in %.2f s (%.0fx), %d hw calls, robot at (%.0f, %.0f) cm %.0f deg",
+                name, simS, wallS, simS / wallS, sim.getTransactions(), sim.getX(), sim.getY(), sim.getHeading()));
+    }
+}
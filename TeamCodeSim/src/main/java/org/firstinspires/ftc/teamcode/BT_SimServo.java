@@ -0,0 +1,91 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.ServoController;
+import com.qualcomm.robotcore.util.Range;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Simulated servo, part of {@link BT_SimHardware}. It reaches the commanded position at once.
+ * Like the SDK, getPosition returns the last commanded position without asking the hub.
+ */
+public class BT_SimServo implements Servo {
+    private final BT_SimHardware sim;
+    private final String name;
+    private final int port;
+
+    private Direction direction = Direction.FORWARD;
+    private double position = 0;
+
+    /* Constructor */
+    public BT_SimServo(BT_SimHardware sim, String name, int port) {
+        this.sim = sim;
+        this.name = name;
+        this.port = port;
+    }
+
+    @Override
+    public ServoController getController() {
+        return null;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return port;
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public void setPosition(double position) {
+        sim.transaction(BT_SimHardware.LYNX_COMMAND_NS);
+        this.position = Range.clip(position, MIN_POSITION, MAX_POSITION);
+    }
+
+    @Override
+    public double getPosition() {
+        return position;
+    }
+
+    @Override
+    public void scaleRange(double min, double max) {
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated Servo";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulated port " + port + " (" + name + ")";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+        direction = Direction.FORWARD;
+    }
+
+    @Override
+    public void close() {
+    }
+}
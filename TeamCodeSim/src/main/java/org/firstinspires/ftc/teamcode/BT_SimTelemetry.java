@@ -0,0 +1,307 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.robotcore.external.Func;
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This is NOT an opmode.
+ *
+ * Telemetry for the simulation, see {@link BT_SimRunner}. It keeps the lines like the driver
+ * station would show them and prints them on update when an output is set.
+ */
+public class BT_SimTelemetry implements Telemetry {
+    private class SimItem implements Item, Line {
+        private String caption;
+        private String value = "";
+        private boolean retained = false;
+
+        SimItem(String caption) {
+            this.caption = caption;
+        }
+
+        @Override
+        public String getCaption() {
+            return caption;
+        }
+
+        @Override
+        public Item setCaption(String caption) {
+            this.caption = caption;
+            return this;
+        }
+
+        @Override
+        public Item setValue(String format, Object... args) {
+            value = String.format(Locale.US, format, args);
+            return this;
+        }
+
+        @Override
+        public Item setValue(Object value) {
+            this.value = String.valueOf(value);
+            return this;
+        }
+
+        @Override
+        public <T> Item setValue(Func<T> valueProducer) {
+            return setValue(valueProducer.value());
+        }
+
+        @Override
+        public <T> Item setValue(String format, Func<T> valueProducer) {
+            return setValue(format, valueProducer.value());
+        }
+
+        @Override
+        public Item setRetained(Boolean retained) {
+            this.retained = retained != null && retained;
+            return this;
+        }
+
+        @Override
+        public boolean isRetained() {
+            return retained;
+        }
+
+        @Override
+        public Item addData(String caption, String format, Object... args) {
+            return BT_SimTelemetry.this.addData(caption, format, args);
+        }
+
+        @Override
+        public Item addData(String caption, Object value) {
+            return BT_SimTelemetry.this.addData(caption, value);
+        }
+
+        @Override
+        public <T> Item addData(String caption, Func<T> valueProducer) {
+            return BT_SimTelemetry.this.addData(caption, valueProducer);
+        }
+
+        @Override
+        public <T> Item addData(String caption, String format, Func<T> valueProducer) {
+            return BT_SimTelemetry.this.addData(caption, format, valueProducer);
+        }
+
+        @Override
+        public String toString() {
+            return value.length() == 0 ? caption : caption + captionValueSeparator + value;
+        }
+    }
+
+    private class SimLog implements Log {
+        private final List<String> entries = new ArrayList<String>();
+        private int capacity = 9;
+        private DisplayOrder displayOrder = DisplayOrder.OLDEST_FIRST;
+
+        @Override
+        public int getCapacity() {
+            return capacity;
+        }
+
+        @Override
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public DisplayOrder getDisplayOrder() {
+            return displayOrder;
+        }
+
+        @Override
+        public void setDisplayOrder(DisplayOrder displayOrder) {
+            this.displayOrder = displayOrder;
+        }
+
+        @Override
+        public void add(String entry) {
+            entries.add(entry);
+            while (entries.size() > capacity) {
+                entries.remove(0);
+            }
+        }
+
+        @Override
+        public void add(String format, Object... args) {
+            add(String.format(Locale.US, format, args));
+        }
+
+        @Override
+        public void clear() {
+            entries.clear();
+        }
+    }
+
+    private final List<SimItem> items = new ArrayList<SimItem>();
+    private final List<Runnable> actions = new ArrayList<Runnable>();
+    private final SimLog log = new SimLog();
+    private boolean autoClear = true;
+    private int msTransmissionInterval = 250;
+    private String itemSeparator = " | ";
+    private String captionValueSeparator = " : ";
+    private PrintStream output = null;
+    private int updates = 0;
+
+    /* Constructor */
+    public BT_SimTelemetry() {
+    }
+
+    /**
+     * Prints the telemetry on every update to the given stream, null to keep it quiet.
+     */
+    public void setOutput(PrintStream output) {
+        this.output = output;
+    }
+
+    /**
+     * @return The number of updates so far.
+     */
+    public int getUpdates() {
+        return updates;
+    }
+
+    @Override
+    public Item addData(String caption, String format, Object... args) {
+        return addItem(caption).setValue(format, args);
+    }
+
+    @Override
+    public Item addData(String caption, Object value) {
+        return addItem(caption).setValue(value);
+    }
+
+    @Override
+    public <T> Item addData(String caption, Func<T> valueProducer) {
+        return addItem(caption).setValue(valueProducer);
+    }
+
+    @Override
+    public <T> Item addData(String caption, String format, Func<T> valueProducer) {
+        return addItem(caption).setValue(format, valueProducer);
+    }
+
+    @Override
+    public boolean removeItem(Item item) {
+        return items.remove(item);
+    }
+
+    @Override
+    public void clear() {
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (!items.get(i).isRetained()) {
+                items.remove(i);
+            }
+        }
+    }
+
+    @Override
+    public void clearAll() {
+        items.clear();
+        log.clear();
+    }
+
+    @Override
+    public Object addAction(Runnable action) {
+        actions.add(action);
+        return action;
+    }
+
+    @Override
+    public boolean removeAction(Object token) {
+        return actions.remove(token);
+    }
+
+    @Override
+    public boolean update() {
+        updates++;
+        for (Runnable action : actions) {
+            action.run();
+        }
+        if (output != null) {
+            StringBuilder text = new StringBuilder();
+            for (SimItem item : items) {
+                text.append(item).append('\n');
+            }
+            for (String entry : log.entries) {
+                text.append(entry).append('\n');
+            }
+            output.print(text);
+        }
+        if (autoClear) {
+            clear();
+        }
+        return true;
+    }
+
+    @Override
+    public Line addLine() {
+        return addItem("");
+    }
+
+    @Override
+    public Line addLine(String lineCaption) {
+        return addItem(lineCaption);
+    }
+
+    @Override
+    public boolean removeLine(Line line) {
+        return items.remove(line);
+    }
+
+    @Override
+    public boolean isAutoClear() {
+        return autoClear;
+    }
+
+    @Override
+    public void setAutoClear(boolean autoClear) {
+        this.autoClear = autoClear;
+    }
+
+    @Override
+    public int getMsTransmissionInterval() {
+        return msTransmissionInterval;
+    }
+
+    @Override
+    public void setMsTransmissionInterval(int msTransmissionInterval) {
+        this.msTransmissionInterval = msTransmissionInterval;
+    }
+
+    @Override
+    public String getItemSeparator() {
+        return itemSeparator;
+    }
+
+    @Override
+    public void setItemSeparator(String itemSeparator) {
+        this.itemSeparator = itemSeparator;
+    }
+
+    @Override
+    public String getCaptionValueSeparator() {
+        return captionValueSeparator;
+    }
+
+    @Override
+    public void setCaptionValueSeparator(String captionValueSeparator) {
+        this.captionValueSeparator = captionValueSeparator;
+    }
+
+    @Override
+    public Log log() {
+        return log;
+    }
+
+    private SimItem addItem(String caption) {
+        SimItem item = new SimItem(caption);
+        items.add(item);
+        return item;
+    }
+}